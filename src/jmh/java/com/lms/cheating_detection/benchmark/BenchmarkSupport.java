@@ -0,0 +1,171 @@
+package com.lms.cheating_detection.benchmark;
+
+import com.lms.cheating_detection.service.CascadeDetectorPool;
+import com.lms.cheating_detection.service.DetectionMetrics;
+import com.lms.cheating_detection.service.DnnFaceDetector;
+import com.lms.cheating_detection.service.FaceDetectionBatcher;
+import com.lms.cheating_detection.service.FaceDetector;
+import com.lms.cheating_detection.service.HaarFaceDetector;
+import com.lms.cheating_detection.service.IntraFrameExecutor;
+import com.lms.cheating_detection.service.MediaPipeFaceDetectionService;
+import com.lms.cheating_detection.service.ModelRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.opencv.core.*;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Wires the detection services without a Spring context and provides the benchmark frame corpus
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    static void loadOpenCV() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    static ModelRegistry modelRegistry() {
+        ModelRegistry registry = new ModelRegistry();
+        ReflectionTestUtils.setField(registry, "cacheDirectory", "target/model-cache");
+        return registry;
+    }
+
+    static CascadeDetectorPool detectorPool(int size) {
+        CascadeDetectorPool pool = new CascadeDetectorPool(modelRegistry());
+        ReflectionTestUtils.setField(pool, "haarFaceCascadePath", "haarcascades/haarcascade_frontalface_default.xml");
+        ReflectionTestUtils.setField(pool, "haarEyeCascadePath", "haarcascades/haarcascade_eye.xml");
+        ReflectionTestUtils.setField(pool, "configuredPoolSize", size);
+        ReflectionTestUtils.setField(pool, "acquireTimeoutMs", 10_000L);
+        pool.init();
+        return pool;
+    }
+
+    static DnnFaceDetector dnnFaceDetector(String modelDirectory, int instances) {
+        DnnFaceDetector detector = new DnnFaceDetector(modelRegistry());
+        ReflectionTestUtils.setField(detector, "modelDirectory", modelDirectory);
+        ReflectionTestUtils.setField(detector, "configFile", "deploy.prototxt");
+        ReflectionTestUtils.setField(detector, "weightsFile", "res10_300x300_ssd_iter_140000.caffemodel");
+        ReflectionTestUtils.setField(detector, "confidenceThreshold", 0.7);
+        ReflectionTestUtils.setField(detector, "configuredInstances", instances);
+        detector.init();
+        return detector;
+    }
+
+    static MediaPipeFaceDetectionService detectionService(CascadeDetectorPool pool) {
+        return detectionService(pool, "haar");
+    }
+
+    static MediaPipeFaceDetectionService detectionService(CascadeDetectorPool pool, String backend) {
+        return detectionService(pool, backend, false);
+    }
+
+    // parallel: intra-frame eye search on a fork-join pool, needs a pool with at least 2 slots
+    static MediaPipeFaceDetectionService detectionService(CascadeDetectorPool pool, String backend, boolean parallel) {
+        IntraFrameExecutor intraFrameExecutor = new IntraFrameExecutor();
+        ReflectionTestUtils.setField(intraFrameExecutor, "enabled", parallel);
+        intraFrameExecutor.init();
+
+        List<FaceDetector> detectors = new ArrayList<>();
+        detectors.add(new HaarFaceDetector(pool));
+        if (DnnFaceDetector.NAME.equals(backend)) {
+            detectors.add(dnnFaceDetector("models", pool.getPoolSize()));
+        }
+
+        MediaPipeFaceDetectionService service = new MediaPipeFaceDetectionService();
+        ReflectionTestUtils.setField(service, "detectorPool", pool);
+        ReflectionTestUtils.setField(service, "faceDetectionBatcher", new FaceDetectionBatcher());
+        ReflectionTestUtils.setField(service, "faceDetectors", detectors);
+        ReflectionTestUtils.setField(service, "metrics", new DetectionMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(service, "intraFrameExecutor", intraFrameExecutor);
+        ReflectionTestUtils.setField(service, "parallelMinFaceWidth", 160);
+        ReflectionTestUtils.setField(service, "detectionBackend", backend);
+        ReflectionTestUtils.setField(service, "fastReduction", 2);
+        ReflectionTestUtils.setField(service, "trackingEnabled", true);
+        ReflectionTestUtils.setField(service, "keyframeInterval", 10);
+        ReflectionTestUtils.setField(service, "trackingSearchMargin", 0.5);
+        ReflectionTestUtils.setField(service, "pupilLocator", "centroid");
+        ReflectionTestUtils.setField(service, "pupilDarkFraction", 0.12);
+        service.init();
+        return service;
+    }
+
+    // The bundled sample image
+    static byte[] bundledJpeg() {
+        try (InputStream in = BenchmarkSupport.class.getResourceAsStream("/images.jpg")) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // A 640x480 webcam-sized frame with a face-like blob, encoded like the browser does (quality 70)
+    static byte[] syntheticJpeg() {
+        return syntheticJpeg(1);
+    }
+
+    // The same scene with 0, 1 or 2 face-like blobs; whether the detector accepts a blob as a face
+    // depends on the backend, so verdicts on these frames are only indicative
+    static byte[] syntheticJpeg(int faces) {
+        Mat frame = new Mat(480, 640, CvType.CV_8UC3, new Scalar(170, 160, 150));
+        if (faces == 1) {
+            drawFace(frame, 320, 1.0);
+        } else if (faces > 1) {
+            drawFace(frame, 190, 0.7);
+            drawFace(frame, 450, 0.7);
+        }
+
+        MatOfByte encoded = new MatOfByte();
+        MatOfInt params = new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, 70);
+        Imgcodecs.imencode(".jpg", frame, encoded, params);
+        byte[] bytes = encoded.toArray();
+        frame.release();
+        encoded.release();
+        params.release();
+        return bytes;
+    }
+
+    private static void drawFace(Mat frame, int centerX, double scale) {
+        Imgproc.ellipse(frame, new Point(centerX, 230), new Size(90 * scale, 120 * scale), 0, 0, 360,
+                new Scalar(120, 140, 190), -1);
+        int eyeRadius = (int) Math.round(12 * scale);
+        Imgproc.circle(frame, new Point(centerX - 35 * scale, 230 - 30 * scale), eyeRadius, new Scalar(40, 40, 40), -1);
+        Imgproc.circle(frame, new Point(centerX + 35 * scale, 230 - 30 * scale), eyeRadius, new Scalar(40, 40, 40), -1);
+        Imgproc.ellipse(frame, new Point(centerX, 230 + 60 * scale), new Size(35 * scale, 12 * scale), 0, 0, 180,
+                new Scalar(60, 60, 120), 4);
+    }
+
+    static byte[] frame(String name) {
+        return "synthetic".equals(name) ? syntheticJpeg() : bundledJpeg();
+    }
+
+    // JPEG files of a corpus directory, or the bundled + synthetic frames when none is given
+    static List<byte[]> corpus(String directory) throws IOException {
+        List<byte[]> frames = new ArrayList<>();
+        if (directory == null || directory.isBlank()) {
+            frames.add(bundledJpeg());
+            frames.add(syntheticJpeg());
+            return frames;
+        }
+
+        try (Stream<Path> files = Files.list(Paths.get(directory))) {
+            for (Path file : files.sorted().toList()) {
+                String name = file.getFileName().toString().toLowerCase();
+                if (name.endsWith(".jpg") || name.endsWith(".jpeg")) {
+                    frames.add(Files.readAllBytes(file));
+                }
+            }
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,68 @@
+package com.lms.cheating_detection.benchmark;
+
+import com.lms.cheating_detection.model.FaceDetectionResult;
+import com.lms.cheating_detection.model.FaceTrackingState;
+import com.lms.cheating_detection.service.MediaPipeFaceDetectionService;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Per-frame latency of the accurate and fast detection modes, starting from the encoded JPEG.
+// With tracking=true the same frame is replayed as a steady session, so most iterations take
+// the local-window search instead of a full-frame scan. parallel=true splits the eye search of
+// large faces over two cores (detection.parallel.enabled); the pool then has a spare slot for it.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DetectionModeBenchmark {
+
+    @Param({"ACCURATE", "FAST"})
+    public String mode;
+
+    @Param({"images.jpg", "synthetic"})
+    public String frame;
+
+    @Param({"false", "true"})
+    public boolean tracking;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private MediaPipeFaceDetectionService detectionService;
+    private MatOfByte encoded;
+    private FaceTrackingState trackingState;
+
+    @Setup
+    public void setUp() {
+        BenchmarkSupport.loadOpenCV();
+        detectionService = BenchmarkSupport.detectionService(
+                BenchmarkSupport.detectorPool(parallel ? 2 : 1), "haar", parallel);
+        encoded = new MatOfByte(BenchmarkSupport.frame(frame));
+        trackingState = tracking ? new FaceTrackingState() : null;
+    }
+
+    @TearDown
+    public void tearDown() {
+        encoded.release();
+    }
+
+    @Benchmark
+    public FaceDetectionResult analyze() {
+        if ("FAST".equals(mode)) {
+            return detectionService.analyzeEncodedFast(encoded, trackingState);
+        }
+
+        Mat decoded = Imgcodecs.imdecode(encoded, Imgcodecs.IMREAD_COLOR);
+        try {
+            return detectionService.analyzeFrame(decoded, trackingState);
+        } finally {
+            decoded.release();
+        }
+    }
+}
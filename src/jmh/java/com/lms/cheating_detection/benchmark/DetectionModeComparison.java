@@ -0,0 +1,61 @@
+package com.lms.cheating_detection.benchmark;
+
+import com.lms.cheating_detection.model.FaceDetectionResult;
+import com.lms.cheating_detection.service.MediaPipeFaceDetectionService;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.util.List;
+import java.util.Objects;
+
+// Accuracy/latency report for choosing a detection mode per exam. The accurate mode is the
+// reference; for the fast mode it prints how often the verdict (evidence type) and the face count
+// agree with it, plus mean latency of both modes.
+//
+// mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.lms.cheating_detection.benchmark.DetectionModeComparison -Djmh.args=/path/to/jpegs
+public class DetectionModeComparison {
+
+    private static final int RUNS_PER_FRAME = 5;
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkSupport.loadOpenCV();
+        MediaPipeFaceDetectionService detectionService = BenchmarkSupport.detectionService(BenchmarkSupport.detectorPool(1));
+        List<byte[]> corpus = BenchmarkSupport.corpus(args.length > 0 ? args[0] : null);
+
+        long accurateNanos = 0;
+        long fastNanos = 0;
+        int verdictAgreement = 0;
+        int faceCountAgreement = 0;
+
+        for (byte[] jpeg : corpus) {
+            MatOfByte encoded = new MatOfByte(jpeg);
+            FaceDetectionResult accurate = null;
+            FaceDetectionResult fast = null;
+
+            for (int run = 0; run < RUNS_PER_FRAME; run++) {
+                long start = System.nanoTime();
+                Mat decoded = Imgcodecs.imdecode(encoded, Imgcodecs.IMREAD_COLOR);
+                accurate = detectionService.analyzeFrame(decoded);
+                decoded.release();
+                accurateNanos += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                fast = detectionService.analyzeEncodedFast(encoded);
+                fastNanos += System.nanoTime() - start;
+            }
+            encoded.release();
+
+            if (Objects.equals(accurate.getEvidenceType(), fast.getEvidenceType())) verdictAgreement++;
+            if (accurate.getFaceCount() == fast.getFaceCount()) faceCountAgreement++;
+        }
+
+        int frames = corpus.size();
+        double runs = (double) frames * RUNS_PER_FRAME;
+        System.out.printf("Frames: %d (%d runs each)%n", frames, RUNS_PER_FRAME);
+        System.out.printf("accurate: %.2f ms/frame%n", accurateNanos / runs / 1e6);
+        System.out.printf("fast:     %.2f ms/frame%n", fastNanos / runs / 1e6);
+        System.out.printf("fast vs accurate: verdict agreement %.1f%%, face count agreement %.1f%%%n",
+                100.0 * verdictAgreement / frames, 100.0 * faceCountAgreement / frames);
+    }
+}
@@ -0,0 +1,70 @@
+package com.lms.cheating_detection.benchmark;
+
+import com.lms.cheating_detection.service.FrameBufferPool;
+import com.lms.cheating_detection.service.PooledFrame;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfInt;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Evidence preparation cost per flagged frame under a high-alert workload (every frame suspicious,
+// all cores busy): re-encoding the already decoded frame at quality 70 (evidence.source=frame)
+// against copying the uploaded JPEG out of its pooled buffer (evidence.source=upload).
+// Disk writes are excluded; both variants hand the same kind of byte[] to EvidenceWriter.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(Threads.MAX)
+@Fork(1)
+public class EvidenceEncodeBenchmark {
+
+    @Param({"images.jpg", "synthetic"})
+    public String frame;
+
+    private byte[] jpeg;
+    private Mat decoded;
+    private MatOfInt compressionParams;
+    private FrameBufferPool frameBufferPool;
+
+    @Setup
+    public void setUp() {
+        BenchmarkSupport.loadOpenCV();
+        jpeg = BenchmarkSupport.frame(frame);
+        MatOfByte encoded = new MatOfByte(jpeg);
+        decoded = Imgcodecs.imdecode(encoded, Imgcodecs.IMREAD_COLOR);
+        encoded.release();
+        compressionParams = new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, 70);
+        frameBufferPool = new FrameBufferPool(true, 1, 256 * 1024, 10 * 1024 * 1024, 5);
+    }
+
+    @TearDown
+    public void tearDown() {
+        decoded.release();
+        compressionParams.release();
+    }
+
+    @Benchmark
+    public byte[] reencodeFrame() {
+        MatOfByte encoded = new MatOfByte();
+        try {
+            Imgcodecs.imencode(".jpg", decoded, encoded, compressionParams);
+            return encoded.toArray();
+        } finally {
+            encoded.release();
+        }
+    }
+
+    @Benchmark
+    public byte[] storeUpload() throws IOException {
+        try (PooledFrame upload = frameBufferPool.read(new ByteArrayInputStream(jpeg), jpeg.length)) {
+            return upload.toByteArray();
+        }
+    }
+}
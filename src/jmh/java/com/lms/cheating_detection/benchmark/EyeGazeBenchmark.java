@@ -0,0 +1,98 @@
+package com.lms.cheating_detection.benchmark;
+
+import com.lms.cheating_detection.model.EyeGazeResult;
+import com.lms.cheating_detection.service.AnalysisWorkspace;
+import com.lms.cheating_detection.service.CascadeDetectorPool;
+import com.lms.cheating_detection.service.HaarFaceDetector;
+import com.lms.cheating_detection.service.MatScope;
+import com.lms.cheating_detection.service.MediaPipeFaceDetectionService;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+// The eye stage of the accurate path in isolation: pupil localization on one eye crop and the full
+// gaze estimate for both eyes of a face. The face comes from a Haar scan of the corpus frame (the
+// synthetic layout when none is found); the eye boxes use the usual frontal-face proportions, so
+// every run measures the same crops. Reports throughput and latency percentiles (p50..p99.99).
+// The *Reused variants run on a long-lived AnalysisWorkspace like the pipeline's pool slots do;
+// with -prof gc their gc.alloc.rate.norm is the steady-state allocation per call.
+// locator selects the pupil method (detection.pupil.locator); PupilLocatorComparison checks that
+// both methods agree on real eye crops.
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EyeGazeBenchmark {
+
+    @Param({"images.jpg", "synthetic"})
+    public String frame;
+
+    @Param({"centroid", "contour"})
+    public String locator;
+
+    private MediaPipeFaceDetectionService detectionService;
+    private Mat decoded;
+    private Mat leftEyeRegion;
+    private Rect faceRect;
+    private Rect leftEye;
+    private Rect rightEye;
+    private AnalysisWorkspace workspace;
+
+    @Setup
+    public void setUp() {
+        BenchmarkSupport.loadOpenCV();
+        CascadeDetectorPool pool = BenchmarkSupport.detectorPool(1);
+        detectionService = BenchmarkSupport.detectionService(pool);
+        ReflectionTestUtils.setField(detectionService, "pupilLocator", locator);
+
+        MatOfByte encoded = new MatOfByte(BenchmarkSupport.frame(frame));
+        decoded = Imgcodecs.imdecode(encoded, Imgcodecs.IMREAD_COLOR);
+        encoded.release();
+
+        Rect[] faces = new HaarFaceDetector(pool).detectFaces(decoded);
+        faceRect = faces.length > 0 ? faces[0] : new Rect(230, 110, 180, 240);
+        leftEye = new Rect((int) (faceRect.width * 0.18), (int) (faceRect.height * 0.25),
+                (int) (faceRect.width * 0.28), (int) (faceRect.height * 0.18));
+        rightEye = new Rect((int) (faceRect.width * 0.54), leftEye.y, leftEye.width, leftEye.height);
+        workspace = new AnalysisWorkspace();
+        leftEyeRegion = decoded.submat(new Rect(faceRect.x + leftEye.x, faceRect.y + leftEye.y, leftEye.width, leftEye.height));
+    }
+
+    @TearDown
+    public void tearDown() {
+        leftEyeRegion.release();
+        workspace.close();
+        decoded.release();
+    }
+
+    @Benchmark
+    public Point findPupilCenter() {
+        return detectionService.findPupilCenter(leftEyeRegion);
+    }
+
+    @Benchmark
+    public EyeGazeResult estimateEyeGaze() {
+        return detectionService.estimateEyeGaze(decoded, faceRect, leftEye, rightEye);
+    }
+
+    @Benchmark
+    public double findPupilCenterReused() {
+        detectionService.findPupilCenter(leftEyeRegion, workspace);
+        return workspace.getPupilX();
+    }
+
+    @Benchmark
+    public EyeGazeResult estimateEyeGazeReused() {
+        try (MatScope scope = new MatScope()) {
+            return detectionService.estimateEyeGaze(workspace, scope, decoded, faceRect, leftEye, rightEye);
+        }
+    }
+}
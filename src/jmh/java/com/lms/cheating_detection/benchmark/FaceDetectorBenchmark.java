@@ -0,0 +1,74 @@
+package com.lms.cheating_detection.benchmark;
+
+import com.lms.cheating_detection.service.DnnFaceDetector;
+import com.lms.cheating_detection.service.FaceDetector;
+import com.lms.cheating_detection.service.HaarFaceDetector;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.Rect;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Full-frame face detection per backend on an already decoded frame: multi-scale Haar vs the
+// dnn SSD model. batch > 1 runs that many frames through one detectFaces call (one forward pass
+// for dnn), so the score is per batch. The dnn model files must be in the models parameter
+// directory (-p models=/path); the face counts of both backends are printed at setup to compare recall.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FaceDetectorBenchmark {
+
+    @Param({"haar", "dnn"})
+    public String backend;
+
+    @Param({"images.jpg", "synthetic"})
+    public String frame;
+
+    @Param({"1", "8"})
+    public int batch;
+
+    @Param({"models"})
+    public String models;
+
+    private FaceDetector detector;
+    private Mat decoded;
+    private List<Mat> frames;
+
+    @Setup
+    public void setUp() {
+        BenchmarkSupport.loadOpenCV();
+        if (DnnFaceDetector.NAME.equals(backend)) {
+            detector = BenchmarkSupport.dnnFaceDetector(models, 1);
+            if (!detector.isAvailable()) {
+                throw new IllegalStateException("DNN face model not found in " + models);
+            }
+        } else {
+            detector = new HaarFaceDetector(BenchmarkSupport.detectorPool(1));
+        }
+
+        MatOfByte encoded = new MatOfByte(BenchmarkSupport.frame(frame));
+        decoded = Imgcodecs.imdecode(encoded, Imgcodecs.IMREAD_COLOR);
+        encoded.release();
+        frames = new ArrayList<>(Collections.nCopies(batch, decoded));
+
+        System.out.printf("%n%s on %s: %d face(s)%n", backend, frame, detector.detectFaces(decoded).length);
+    }
+
+    @TearDown
+    public void tearDown() {
+        decoded.release();
+    }
+
+    @Benchmark
+    public List<Rect[]> detect() {
+        return detector.detectFaces(frames);
+    }
+}
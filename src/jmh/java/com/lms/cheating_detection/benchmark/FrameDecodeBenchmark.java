@@ -0,0 +1,72 @@
+package com.lms.cheating_detection.benchmark;
+
+import com.lms.cheating_detection.service.FrameBufferPool;
+import com.lms.cheating_detection.service.PooledFrame;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+// Ingest + decode of one uploaded JPEG: the old getBytes()/MatOfByte path, the FrameBufferPool with
+// pooling disabled (the default) and the pooled direct-buffer path. Run with -prof gc and compare
+// gc.alloc.rate.norm (bytes per frame) and gc.time before enabling frame.buffer.pool-enabled.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FrameDecodeBenchmark {
+
+    private byte[] jpeg;
+    private FrameBufferPool frameBufferPool;
+    private FrameBufferPool unpooled;
+
+    @Setup
+    public void setUp() throws IOException {
+        nu.pattern.OpenCV.loadLocally();
+        try (InputStream in = FrameDecodeBenchmark.class.getResourceAsStream("/images.jpg")) {
+            jpeg = in.readAllBytes();
+        }
+        frameBufferPool = new FrameBufferPool(true, 2, 256 * 1024, 10 * 1024 * 1024, 5);
+        unpooled = new FrameBufferPool(false, 2, 256 * 1024, 10 * 1024 * 1024, 5);
+    }
+
+    @Benchmark
+    public int heapCopyDecode() throws IOException {
+        // MultipartFile.getBytes() followed by new MatOfByte(bytes)
+        byte[] imageData = new ByteArrayInputStream(jpeg).readAllBytes();
+        MatOfByte encoded = new MatOfByte(imageData);
+        Mat frame = Imgcodecs.imdecode(encoded, Imgcodecs.IMREAD_COLOR);
+        int rows = frame.rows();
+        frame.release();
+        encoded.release();
+        return rows;
+    }
+
+    @Benchmark
+    public int unpooledDecode() throws IOException {
+        return decode(unpooled);
+    }
+
+    @Benchmark
+    public int directBufferDecode() throws IOException {
+        return decode(frameBufferPool);
+    }
+
+    private int decode(FrameBufferPool pool) throws IOException {
+        try (PooledFrame pooledFrame = pool.read(new ByteArrayInputStream(jpeg), jpeg.length)) {
+            Mat encoded = pooledFrame.asMat();
+            Mat frame = Imgcodecs.imdecode(encoded, Imgcodecs.IMREAD_COLOR);
+            int rows = frame.rows();
+            frame.release();
+            encoded.release();
+            return rows;
+        }
+    }
+}
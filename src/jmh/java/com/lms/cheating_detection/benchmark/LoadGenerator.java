@@ -0,0 +1,274 @@
+package com.lms.cheating_detection.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// End-to-end load test against a running server: N simulated students each call /start, then post
+// frames to /analyze at the capture interval (or the interval the server returns, follow=true),
+// honouring Retry-After on 429, and /stop at the end. Frames are replayed round-robin from a JPEG
+// folder; without one the bundled image and synthetic frames with zero, one and two face-like blobs
+// are used, which exercise the paths but not a realistic verdict mix. Server CPU and heap are sampled from
+// /api/client-monitoring/metrics once per second. Start the server with the loadtest profile
+// (embedded H2) so runs are reproducible:
+//
+// mvn -Ploadtest spring-boot:run -Dspring-boot.run.profiles=loadtest
+// mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.lms.cheating_detection.benchmark.LoadGenerator \
+//     -Djmh.args="sessions=300 seconds=60 interval-ms=2000 mode=accurate frames=/path/to/jpegs url=http://localhost:8081"
+public class LoadGenerator {
+
+    private static final String API = "/api/client-monitoring";
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String baseUrl;
+    private final long intervalMs;
+    private final boolean followServerInterval;
+    private final String mode;
+    private final List<byte[]> frames;
+
+    private final List<Long> latenciesNanos = Collections.synchronizedList(new ArrayList<>());
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder ok = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder suspicious = new LongAdder();
+    private final List<Double> cpuSamples = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long> heapSamples = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long> threadSamples = Collections.synchronizedList(new ArrayList<>());
+    private volatile boolean running = true;
+
+    private LoadGenerator(String baseUrl, long intervalMs, boolean followServerInterval, String mode, List<byte[]> frames) {
+        this.baseUrl = baseUrl;
+        this.intervalMs = intervalMs;
+        this.followServerInterval = followServerInterval;
+        this.mode = mode;
+        this.frames = frames;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator > 0) {
+                options.put(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+        }
+        int sessions = Integer.parseInt(options.getOrDefault("sessions", "100"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "60"));
+        long intervalMs = Long.parseLong(options.getOrDefault("interval-ms", "2000"));
+        boolean follow = Boolean.parseBoolean(options.getOrDefault("follow", "false"));
+        String mode = options.getOrDefault("mode", "accurate");
+        String url = options.getOrDefault("url", "http://localhost:8081");
+        List<byte[]> frames;
+        if (options.containsKey("frames")) {
+            frames = BenchmarkSupport.corpus(options.get("frames"));
+            if (frames.isEmpty()) {
+                throw new IllegalStateException("No JPEG frames found in " + options.get("frames"));
+            }
+        } else {
+            BenchmarkSupport.loadOpenCV();
+            frames = List.of(BenchmarkSupport.bundledJpeg(), BenchmarkSupport.syntheticJpeg(0),
+                    BenchmarkSupport.syntheticJpeg(1), BenchmarkSupport.syntheticJpeg(2));
+            System.out.println("WARNING: no frames= folder given, replaying the bundled image and 3 synthetic frames;"
+                    + " pass recorded webcam JPEGs for representative detection cost and verdicts");
+        }
+
+        System.out.printf("Load test: %d sessions for %d s against %s, mode %s, interval %d ms%s, %d frames%n",
+                sessions, seconds, url, mode, intervalMs, follow ? " (server-driven)" : "", frames.size());
+        new LoadGenerator(url, intervalMs, follow, mode, frames).run(sessions, seconds);
+    }
+
+    private void run(int sessions, int seconds) throws InterruptedException {
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(this::sampleServer, 0, 1, TimeUnit.SECONDS);
+
+        long startNanos = System.nanoTime();
+        try (ExecutorService students = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < sessions; i++) {
+                int index = i;
+                students.submit(() -> student(index));
+            }
+            TimeUnit.SECONDS.sleep(seconds);
+            running = false;
+        }
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        sampler.shutdownNow();
+        report(elapsedSeconds);
+    }
+
+    private void student(int index) {
+        String sessionId = "load-" + index + "-" + UUID.randomUUID().toString().substring(0, 8);
+        String examId = "load-exam";
+        try {
+            post(API + "/start?sessionId=" + sessionId + "&examId=" + examId + "&mode=" + mode,
+                    HttpRequest.BodyPublishers.noBody(), null);
+
+            // Spread the first frames over one interval like real clients joining
+            Thread.sleep(ThreadLocalRandom.current().nextLong(intervalMs));
+            int frameIndex = index;
+            while (running) {
+                long waitMs = analyze(sessionId, examId, frames.get(frameIndex++ % frames.size()));
+                Thread.sleep(waitMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            errors.increment();
+        } finally {
+            try {
+                post(API + "/stop?sessionId=" + sessionId, HttpRequest.BodyPublishers.noBody(), null);
+            } catch (Exception ignored) {
+                // The server may already be gone at the end of the run
+            }
+        }
+    }
+
+    // Posts one frame and returns how long this student waits before the next one
+    private long analyze(String sessionId, String examId, byte[] jpeg) throws InterruptedException {
+        String boundary = "----load" + UUID.randomUUID();
+        byte[] body = multipart(boundary, sessionId, examId, jpeg);
+
+        sent.increment();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = post(API + "/analyze",
+                    HttpRequest.BodyPublishers.ofByteArray(body), "multipart/form-data; boundary=" + boundary);
+            latenciesNanos.add(System.nanoTime() - start);
+
+            if (response.statusCode() == 429) {
+                throttled.increment();
+                long retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(1);
+                return TimeUnit.SECONDS.toMillis(retryAfter);
+            }
+            if (response.statusCode() != 200) {
+                errors.increment();
+                return intervalMs;
+            }
+
+            ok.increment();
+            JsonNode json = objectMapper.readTree(response.body());
+            if (json.path("suspicious").asBoolean()) {
+                suspicious.increment();
+            }
+            long serverInterval = json.path("nextCaptureIntervalMs").asLong(0);
+            return followServerInterval && serverInterval > 0 ? serverInterval : intervalMs;
+        } catch (IOException e) {
+            errors.increment();
+            return intervalMs;
+        }
+    }
+
+    private HttpResponse<String> post(String path, HttpRequest.BodyPublisher body, String contentType)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .POST(body);
+        if (contentType != null) {
+            request.header("Content-Type", contentType);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static byte[] multipart(String boundary, String sessionId, String examId, byte[] jpeg) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(jpeg.length + 512);
+        writeField(out, boundary, "sessionId", sessionId);
+        writeField(out, boundary, "examId", examId);
+        out.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"image\"; filename=\"frame.jpg\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        out.writeBytes(jpeg);
+        out.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return out.toByteArray();
+    }
+
+    private static void writeField(ByteArrayOutputStream out, String boundary, String name, String value) {
+        out.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + name + "\"\r\n\r\n"
+                + value + "\r\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void sampleServer() {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + API + "/metrics"))
+                    .timeout(Duration.ofSeconds(5))
+                    .GET()
+                    .build();
+            JsonNode jvm = objectMapper.readTree(client.send(request, HttpResponse.BodyHandlers.ofString()).body()).path("jvm");
+            if (jvm.has("processCpuLoad")) {
+                cpuSamples.add(jvm.get("processCpuLoad").asDouble());
+            }
+            heapSamples.add(jvm.path("heapUsedBytes").asLong());
+            threadSamples.add(jvm.path("liveThreads").asLong());
+        } catch (Exception e) {
+            // A missed sample only thins out the CPU/heap statistics
+        }
+    }
+
+    private void report(double elapsedSeconds) {
+        List<Long> sorted;
+        synchronized (latenciesNanos) {
+            sorted = new ArrayList<>(latenciesNanos);
+        }
+        Collections.sort(sorted);
+        long requests = sent.sum();
+
+        System.out.printf("Requests: %d in %.1f s (%.1f/s), ok %d (%.1f/s), suspicious %d%n",
+                requests, elapsedSeconds, requests / elapsedSeconds, ok.sum(), ok.sum() / elapsedSeconds, suspicious.sum());
+        System.out.printf("429: %d (%.2f%%), errors: %d (%.2f%%)%n",
+                throttled.sum(), percent(throttled.sum(), requests), errors.sum(), percent(errors.sum(), requests));
+        System.out.printf("Latency ms: p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), percentile(sorted, 1.0));
+        synchronized (cpuSamples) {
+            System.out.printf("Server CPU: avg %.0f%%, max %.0f%%%n",
+                    100 * cpuSamples.stream().mapToDouble(Double::doubleValue).average().orElse(0),
+                    100 * cpuSamples.stream().mapToDouble(Double::doubleValue).max().orElse(0));
+        }
+        synchronized (heapSamples) {
+            System.out.printf("Server heap used: avg %d MB, max %d MB%n",
+                    (long) heapSamples.stream().mapToLong(Long::longValue).average().orElse(0) >> 20,
+                    heapSamples.stream().mapToLong(Long::longValue).max().orElse(0) >> 20);
+        }
+        synchronized (threadSamples) {
+            System.out.printf("Server platform threads: max %d%n",
+                    threadSamples.stream().mapToLong(Long::longValue).max().orElse(0));
+        }
+    }
+
+    private static double percent(long part, long total) {
+        return total == 0 ? 0 : 100.0 * part / total;
+    }
+
+    private static double percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.size() - 1, Math.ceil(quantile * sorted.size()) - 1);
+        return sorted.get(Math.max(0, index)) / 1e6;
+    }
+}
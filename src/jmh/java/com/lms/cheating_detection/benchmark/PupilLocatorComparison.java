@@ -0,0 +1,102 @@
+package com.lms.cheating_detection.benchmark;
+
+import com.lms.cheating_detection.service.AnalysisWorkspace;
+import com.lms.cheating_detection.service.CascadeDetectorPool;
+import com.lms.cheating_detection.service.HaarFaceDetector;
+import com.lms.cheating_detection.service.MediaPipeFaceDetectionService;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfRect;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.List;
+
+// Speed/agreement report for the pupil locators on the eye crops of a corpus. Eyes are found like
+// the accurate path does (Haar face, then the eye cascade inside it); on every crop both locators
+// run RUNS_PER_EYE times. The contour locator is the reference: the report gives the mean distance
+// between the two pupil centers in eye widths, and how often both put the horizontal gaze on the
+// same side of the +-0.3 limit the verdict uses.
+//
+// mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.lms.cheating_detection.benchmark.PupilLocatorComparison -Djmh.args=/path/to/jpegs
+public class PupilLocatorComparison {
+
+    private static final int RUNS_PER_EYE = 200;
+    private static final double GAZE_LIMIT = MediaPipeFaceDetectionService.MAX_GAZE_OFFSET;
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkSupport.loadOpenCV();
+        CascadeDetectorPool pool = BenchmarkSupport.detectorPool(1);
+        MediaPipeFaceDetectionService detectionService = BenchmarkSupport.detectionService(pool);
+        HaarFaceDetector faceDetector = new HaarFaceDetector(pool);
+        List<byte[]> corpus = BenchmarkSupport.corpus(args.length > 0 ? args[0] : null);
+
+        long centroidNanos = 0;
+        long contourNanos = 0;
+        double distanceSum = 0;
+        int verdictAgreement = 0;
+        int eyeCount = 0;
+
+        try (AnalysisWorkspace workspace = new AnalysisWorkspace();
+             CascadeDetectorPool.Lease lease = pool.acquire()) {
+            for (byte[] jpeg : corpus) {
+                MatOfByte encoded = new MatOfByte(jpeg);
+                Mat frame = Imgcodecs.imdecode(encoded, Imgcodecs.IMREAD_COLOR);
+                encoded.release();
+                Mat gray = new Mat();
+                Imgproc.cvtColor(frame, gray, Imgproc.COLOR_BGR2GRAY);
+
+                for (Rect face : faceDetector.detectFaces(frame)) {
+                    Mat faceGray = gray.submat(face);
+                    MatOfRect eyes = new MatOfRect();
+                    lease.eyesCascade().detectMultiScale(faceGray, eyes, 1.1, 2, 0, new Size(10, 10), new Size());
+
+                    for (Rect eye : eyes.toArray()) {
+                        Mat eyeRegion = frame.submat(new Rect(face.x + eye.x, face.y + eye.y, eye.width, eye.height));
+
+                        long start = System.nanoTime();
+                        for (int run = 0; run < RUNS_PER_EYE; run++) {
+                            detectionService.findPupilCenterCentroid(eyeRegion, workspace);
+                        }
+                        centroidNanos += System.nanoTime() - start;
+                        double centroidX = workspace.getPupilX();
+                        double centroidY = workspace.getPupilY();
+
+                        start = System.nanoTime();
+                        for (int run = 0; run < RUNS_PER_EYE; run++) {
+                            detectionService.findPupilCenterContour(eyeRegion, workspace);
+                        }
+                        contourNanos += System.nanoTime() - start;
+                        double contourX = workspace.getPupilX();
+                        double contourY = workspace.getPupilY();
+
+                        distanceSum += Math.hypot(centroidX - contourX, centroidY - contourY) / eye.width;
+                        double half = eye.width / 2.0;
+                        boolean centroidAway = Math.abs((centroidX - half) / half) > GAZE_LIMIT;
+                        boolean contourAway = Math.abs((contourX - half) / half) > GAZE_LIMIT;
+                        if (centroidAway == contourAway) verdictAgreement++;
+                        eyeCount++;
+                        eyeRegion.release();
+                    }
+                    eyes.release();
+                    faceGray.release();
+                }
+                gray.release();
+                frame.release();
+            }
+        }
+
+        System.out.printf("Frames: %d, eyes: %d (%d runs each)%n", corpus.size(), eyeCount, RUNS_PER_EYE);
+        if (eyeCount == 0) {
+            System.out.println("No eyes found in the corpus");
+            return;
+        }
+        double runs = (double) eyeCount * RUNS_PER_EYE;
+        System.out.printf("centroid: %.2f us/eye%n", centroidNanos / runs / 1e3);
+        System.out.printf("contour:  %.2f us/eye%n", contourNanos / runs / 1e3);
+        System.out.printf("centroid vs contour: mean distance %.3f eye widths, gaze limit agreement %.1f%%%n",
+                distanceSum / eyeCount, 100.0 * verdictAgreement / eyeCount);
+    }
+}
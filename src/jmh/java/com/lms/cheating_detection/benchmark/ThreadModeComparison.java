@@ -0,0 +1,92 @@
+package com.lms.cheating_detection.benchmark;
+
+import com.lms.cheating_detection.CheatingDetectionApplication;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Request thread models compared end to end: the real server is started twice in its own JVM
+// (loadtest profile, embedded H2 from the loadtest Maven profile), once with platform request
+// threads (Tomcat's 200-thread pool) and once with spring.threads.virtual.enabled, and
+// LoadGenerator runs the same load against each.
+// The server log of each run goes to target/thread-mode-<mode>.log.
+//
+// mvn -Pbenchmark,loadtest test-compile exec:exec -Dbenchmark.main=com.lms.cheating_detection.benchmark.ThreadModeComparison \
+//     -Djmh.args="sessions=1000 seconds=60 interval-ms=2000 frames=/path/to/jpegs"
+// arguments are passed on to LoadGenerator (url is set here); port=8091 picks the server port
+public class ThreadModeComparison {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    public static void main(String[] args) throws Exception {
+        int port = 8091;
+        List<String> loadArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("port=")) {
+                port = Integer.parseInt(arg.substring("port=".length()));
+            } else if (!arg.startsWith("url=")) {
+                loadArgs.add(arg);
+            }
+        }
+        loadArgs.add("url=http://localhost:" + port);
+
+        for (String mode : List.of("platform", "virtual")) {
+            System.out.printf("=== %s request threads ===%n", mode);
+            Process server = startServer(mode, port);
+            try {
+                awaitStartup(server, port);
+                LoadGenerator.main(loadArgs.toArray(new String[0]));
+            } finally {
+                server.destroy();
+                if (!server.waitFor(30, TimeUnit.SECONDS)) {
+                    server.destroyForcibly();
+                }
+            }
+        }
+    }
+
+    private static Process startServer(String mode, int port) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        return new ProcessBuilder(java,
+                "-cp", System.getProperty("java.class.path"),
+                CheatingDetectionApplication.class.getName(),
+                "--spring.profiles.active=loadtest",
+                "--spring.threads.virtual.enabled=" + mode.equals("virtual"),
+                "--server.port=" + port)
+                .redirectErrorStream(true)
+                .redirectOutput(new File("target/thread-mode-" + mode + ".log"))
+                .start();
+    }
+
+    private static void awaitStartup(Process server, int port) throws InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/client-monitoring/metrics"))
+                .timeout(Duration.ofSeconds(2))
+                .GET()
+                .build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!server.isAlive()) {
+                throw new IllegalStateException("Server exited with " + server.exitValue() + ", see target/thread-mode-*.log");
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            TimeUnit.MILLISECONDS.sleep(500);
+        }
+        throw new IllegalStateException("Server did not start within " + STARTUP_TIMEOUT);
+    }
+}
@@ -0,0 +1,80 @@
+package com.lms.cheating_detection.config;
+
+import com.lms.cheating_detection.service.AdmissionController;
+import com.lms.cheating_detection.service.AsyncFrameAnalysisService;
+import com.lms.cheating_detection.service.CascadeDetectorPool;
+import com.lms.cheating_detection.service.ClientCheatingDetectionService;
+import com.lms.cheating_detection.service.EvidenceWriter;
+import com.lms.cheating_detection.service.FrameBufferPool;
+import com.lms.cheating_detection.service.IncidentAggregator;
+import com.lms.cheating_detection.service.MatScope;
+import com.lms.cheating_detection.service.SuspiciousActivityWriter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Session and queue-depth gauges for /actuator/prometheus. They are read when the registry is
+// scraped, never on the analysis path; the per-stage timers live in DetectionMetrics.
+// With opencv.native-accounting.enabled, native Mat memory of open MatScopes is exported too.
+@Configuration
+public class MetricsConfig {
+
+    // Live count of native bytes held by open MatScopes; costs one registration per analysis step
+    @Value("${opencv.native-accounting.enabled:false}")
+    private boolean nativeAccounting;
+
+    @PostConstruct
+    public void init() {
+        MatScope.setAccounting(nativeAccounting);
+    }
+
+    @Bean
+    public MeterBinder monitoringGauges(ClientCheatingDetectionService cheatingDetectionService,
+                                        AsyncFrameAnalysisService asyncFrameAnalysisService,
+                                        CascadeDetectorPool detectorPool,
+                                        AdmissionController admissionController,
+                                        EvidenceWriter evidenceWriter,
+                                        SuspiciousActivityWriter suspiciousActivityWriter,
+                                        IncidentAggregator incidentAggregator,
+                                        FrameBufferPool frameBufferPool) {
+        return registry -> {
+            Gauge.builder("monitoring.sessions.active", cheatingDetectionService, ClientCheatingDetectionService::getActiveSessionCount)
+                    .description("Client monitoring sessions currently started")
+                    .register(registry);
+            Gauge.builder("analysis.queue.frames", asyncFrameAnalysisService, AsyncFrameAnalysisService::getQueuedFrames)
+                    .description("Frames waiting for an async analysis worker")
+                    .register(registry);
+            Gauge.builder("analysis.in.flight", admissionController, AdmissionController::getInFlight)
+                    .description("Frames being analyzed right now")
+                    .register(registry);
+            Gauge.builder("detector.pool.in.use", detectorPool, pool -> pool.getPoolSize() - pool.getAvailable())
+                    .description("Cascade detector slots checked out")
+                    .register(registry);
+            Gauge.builder("evidence.writer.queue", evidenceWriter, EvidenceWriter::getQueueSize)
+                    .description("Evidence images waiting to be written")
+                    .register(registry);
+            Gauge.builder("activity.writer.pending", suspiciousActivityWriter, SuspiciousActivityWriter::getPendingCount)
+                    .description("Suspicious activity rows waiting for the next batch insert")
+                    .register(registry);
+            Gauge.builder("incidents.open", incidentAggregator, IncidentAggregator::getOpenIncidentCount)
+                    .description("Incidents not yet closed and persisted")
+                    .register(registry);
+            FunctionCounter.builder("frame.buffer.heap.fallbacks", frameBufferPool, FrameBufferPool::getHeapFallbacks)
+                    .description("Frames received while every pooled direct buffer was in use")
+                    .register(registry);
+            if (MatScope.isAccounting()) {
+                Gauge.builder("opencv.native.outstanding", MatScope::outstandingBytes)
+                        .description("Native Mat memory held by analyses in progress")
+                        .baseUnit("bytes")
+                        .register(registry);
+                Gauge.builder("opencv.native.mats", MatScope::outstandingMats)
+                        .description("Mats held by analyses in progress")
+                        .register(registry);
+            }
+        };
+    }
+}
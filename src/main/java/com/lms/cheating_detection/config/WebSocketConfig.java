@@ -0,0 +1,38 @@
+package com.lms.cheating_detection.config;
+
+import com.lms.cheating_detection.controller.FrameStreamWebSocketHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final FrameStreamWebSocketHandler frameStreamWebSocketHandler;
+
+    @Value("${websocket.max-frame-bytes:1048576}")
+    private int maxFrameBytes;
+
+    public WebSocketConfig(FrameStreamWebSocketHandler frameStreamWebSocketHandler) {
+        this.frameStreamWebSocketHandler = frameStreamWebSocketHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(frameStreamWebSocketHandler, "/ws/client-monitoring");
+    }
+
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer() {
+        // A whole JPEG frame arrives as one binary message
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxBinaryMessageBufferSize(maxFrameBytes);
+        container.setMaxTextMessageBufferSize(8192);
+        return container;
+    }
+}
@@ -1,5 +1,6 @@
 package com.lms.cheating_detection.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lms.cheating_detection.dto.SuspiciousActivityDTO;
 import com.lms.cheating_detection.model.SuspiciousActivity;
 import com.lms.cheating_detection.repository.SuspiciousActivityRepository;
@@ -12,11 +13,21 @@ import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -27,10 +38,12 @@ import java.util.Optional;
 public class CheatingDetectionController {
 
     private final CheatingDetectionService cheatingDetectionService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public CheatingDetectionController(CheatingDetectionService cheatingDetectionService) {
+    public CheatingDetectionController(CheatingDetectionService cheatingDetectionService, ObjectMapper objectMapper) {
         this.cheatingDetectionService = cheatingDetectionService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/start")
@@ -59,19 +72,65 @@ public class CheatingDetectionController {
         }
     }
 
+    // Keyset-paginated: pass the X-Next-Cursor header of a response as cursor to get the following page
     @GetMapping("/activities")
     public ResponseEntity<List<SuspiciousActivityDTO>> getSuspiciousActivities(
             @RequestParam(required = false) String sessionId,
-            @RequestParam(required = false) String examId) {
+            @RequestParam(required = false) String examId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
         try {
-            List<SuspiciousActivityDTO> activities = cheatingDetectionService.getSuspiciousActivities(sessionId, examId);
-            return ResponseEntity.ok(activities);
+            LocalDateTime afterTimestamp = null;
+            Long afterId = null;
+            if (cursor != null) {
+                int separator = cursor.lastIndexOf('_');
+                if (separator <= 0) {
+                    return ResponseEntity.badRequest().body(Collections.emptyList());
+                }
+                afterTimestamp = LocalDateTime.parse(cursor.substring(0, separator));
+                afterId = Long.parseLong(cursor.substring(separator + 1));
+            }
+
+            int pageSize = Math.max(1, Math.min(limit, CheatingDetectionService.MAX_PAGE_SIZE));
+            List<SuspiciousActivityDTO> activities = cheatingDetectionService.getSuspiciousActivities(
+                    sessionId, examId, afterTimestamp, afterId, pageSize);
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (activities.size() == pageSize) {
+                SuspiciousActivityDTO last = activities.get(activities.size() - 1);
+                response.header("X-Next-Cursor", last.getTimestamp() + "_" + last.getId());
+            }
+            return response.body(activities);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return ResponseEntity.badRequest().body(Collections.emptyList());
         } catch (Exception e) {
             log.error("Failed to retrieve suspicious activities", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Collections.emptyList());
         }
     }
 
+    // Exam-wide pulls as newline-delimited JSON, streamed page by page
+    @GetMapping(value = "/activities/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportSuspiciousActivities(
+            @RequestParam(required = false) String sessionId,
+            @RequestParam(required = false) String examId) {
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            cheatingDetectionService.exportSuspiciousActivities(sessionId, examId, activity -> {
+                try {
+                    writer.write(objectMapper.writeValueAsString(activity));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
     @GetMapping("/evidence/{id}")
     public ResponseEntity<Resource> getEvidence(@PathVariable Long id) {
         try {
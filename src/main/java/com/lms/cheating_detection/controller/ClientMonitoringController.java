@@ -1,15 +1,39 @@
 package com.lms.cheating_detection.controller;
+import com.lms.cheating_detection.model.FaceDetectionResult;
+import com.lms.cheating_detection.model.FrameAnalysisResult;
+import com.lms.cheating_detection.response.AnalyzeFrameResponse;
 import com.lms.cheating_detection.response.ApiResponse;
+import com.lms.cheating_detection.service.AdmissionController;
+import com.lms.cheating_detection.service.AsyncFrameAnalysisService;
+import com.lms.cheating_detection.service.CascadeDetectorPool;
 import com.lms.cheating_detection.service.ClientCheatingDetectionService;
+import com.lms.cheating_detection.service.EvidenceWriter;
+import com.lms.cheating_detection.service.FaceDetectionBatcher;
+import com.lms.cheating_detection.service.FrameBufferPool;
+import com.lms.cheating_detection.service.IncidentAggregator;
+import com.lms.cheating_detection.service.IntraFrameExecutor;
+import com.lms.cheating_detection.service.MediaPipeFaceDetectionService;
+import com.lms.cheating_detection.service.ModelRegistry;
+import com.lms.cheating_detection.service.OpenCvExecutor;
+import com.lms.cheating_detection.service.PooledFrame;
+import com.lms.cheating_detection.service.SamplingPolicy;
+import com.lms.cheating_detection.service.SuspiciousActivityWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/client-monitoring")
@@ -17,17 +41,61 @@ public class ClientMonitoringController {
 
     private static final Logger log = LoggerFactory.getLogger(ClientMonitoringController.class);
     private final ClientCheatingDetectionService cheatingDetectionService;
+    private final AsyncFrameAnalysisService asyncFrameAnalysisService;
+    private final CascadeDetectorPool detectorPool;
+    private final FrameBufferPool frameBufferPool;
+    private final MediaPipeFaceDetectionService faceDetectionService;
+    private final FaceDetectionBatcher faceDetectionBatcher;
+    private final EvidenceWriter evidenceWriter;
+    private final SuspiciousActivityWriter suspiciousActivityWriter;
+    private final IncidentAggregator incidentAggregator;
+    private final SamplingPolicy samplingPolicy;
+    private final AdmissionController admissionController;
+    private final OpenCvExecutor openCvExecutor;
+    private final IntraFrameExecutor intraFrameExecutor;
+    private final ModelRegistry modelRegistry;
+    private final FrameStreamWebSocketHandler frameStreamWebSocketHandler;
 
     @Autowired
-    public ClientMonitoringController(ClientCheatingDetectionService cheatingDetectionService) {
+    public ClientMonitoringController(ClientCheatingDetectionService cheatingDetectionService,
+                                      AsyncFrameAnalysisService asyncFrameAnalysisService,
+                                      CascadeDetectorPool detectorPool,
+                                      FrameBufferPool frameBufferPool,
+                                      MediaPipeFaceDetectionService faceDetectionService,
+                                      FaceDetectionBatcher faceDetectionBatcher,
+                                      EvidenceWriter evidenceWriter,
+                                      SuspiciousActivityWriter suspiciousActivityWriter,
+                                      IncidentAggregator incidentAggregator,
+                                      SamplingPolicy samplingPolicy,
+                                      AdmissionController admissionController,
+                                      OpenCvExecutor openCvExecutor,
+                                      IntraFrameExecutor intraFrameExecutor,
+                                      ModelRegistry modelRegistry,
+                                      FrameStreamWebSocketHandler frameStreamWebSocketHandler) {
         this.cheatingDetectionService = cheatingDetectionService;
+        this.asyncFrameAnalysisService = asyncFrameAnalysisService;
+        this.detectorPool = detectorPool;
+        this.frameBufferPool = frameBufferPool;
+        this.faceDetectionService = faceDetectionService;
+        this.faceDetectionBatcher = faceDetectionBatcher;
+        this.evidenceWriter = evidenceWriter;
+        this.suspiciousActivityWriter = suspiciousActivityWriter;
+        this.incidentAggregator = incidentAggregator;
+        this.samplingPolicy = samplingPolicy;
+        this.admissionController = admissionController;
+        this.openCvExecutor = openCvExecutor;
+        this.intraFrameExecutor = intraFrameExecutor;
+        this.modelRegistry = modelRegistry;
+        this.frameStreamWebSocketHandler = frameStreamWebSocketHandler;
     }
 
     @PostMapping("/start")
     public ResponseEntity<?> startMonitoring(@RequestParam("sessionId") String sessionId,
-                                             @RequestParam("examId") String examId) {
+                                             @RequestParam("examId") String examId,
+                                             @RequestParam(value = "mode", required = false) String mode) {
         try {
-            cheatingDetectionService.startMonitoring(sessionId, examId);
+            cheatingDetectionService.startMonitoring(sessionId, examId, mode);
+            asyncFrameAnalysisService.openSession(sessionId);
             return ResponseEntity.ok(new ApiResponse(true, "Monitoring session started"));
         } catch (Exception e) {
             log.error("Error starting monitoring session", e);
@@ -39,31 +107,126 @@ public class ClientMonitoringController {
     public ResponseEntity<?> analyzeFrame(@RequestParam("sessionId") String sessionId,
                                           @RequestParam("examId") String examId,
                                           @RequestParam("image") MultipartFile imageFile) {
-        try {
-            boolean suspicious = cheatingDetectionService.analyzeFrame(
+        if (!cheatingDetectionService.isMonitoring(sessionId)) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "No active monitoring session"));
+        }
+        if (!admissionController.tryAdmit(sessionId, cheatingDetectionService.isEscalated(sessionId))) {
+            return tooManyRequests();
+        }
+
+        // Stream the upload into a pooled direct buffer instead of imageFile.getBytes()
+        try (PooledFrame frame = frameBufferPool.read(imageFile.getInputStream(), imageFile.getSize())) {
+            // Off the request thread when it is virtual: OpenCV pins the carrier while it runs
+            FaceDetectionResult result = openCvExecutor.call(() -> cheatingDetectionService.analyze(
                     sessionId,
                     examId,
-                    imageFile.getBytes()
-            );
+                    frame
+            ));
+            boolean suspicious = result != null && result.isSuspiciousActivity();
 
-            return ResponseEntity.ok(new ApiResponse(
+            return ResponseEntity.ok(new AnalyzeFrameResponse(
                     true,
-                    suspicious ? "Suspicious activity detected" : "No suspicious activity detected"
+                    suspicious ? "Suspicious activity detected" : "No suspicious activity detected",
+                    suspicious,
+                    cheatingDetectionService.getNextCaptureInterval(sessionId)
             ));
+        } catch (RejectedExecutionException e) {
+            // OpenCV executor queue full: shed like admission control does
+            return tooManyRequests();
         } catch (IOException e) {
             log.error("Error processing image", e);
             return ResponseEntity.badRequest().body(new ApiResponse(false, "Error processing image: " + e.getMessage()));
         }
     }
 
+    // Queues the frame and answers immediately; the verdict is fetched from /analyze/result
+    @PostMapping(value = "/analyze/async", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> analyzeFrameAsync(@RequestParam("sessionId") String sessionId,
+                                               @RequestParam("examId") String examId,
+                                               @RequestParam("image") MultipartFile imageFile) {
+        if (!cheatingDetectionService.isMonitoring(sessionId)) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "No active monitoring session"));
+        }
+        if (!admissionController.tryAdmit(sessionId, cheatingDetectionService.isEscalated(sessionId))) {
+            return tooManyRequests();
+        }
+
+        try {
+            PooledFrame frame = frameBufferPool.read(imageFile.getInputStream(), imageFile.getSize());
+            long sequence = asyncFrameAnalysisService.submit(sessionId, examId, frame);
+            if (sequence < 0) {
+                return ResponseEntity.badRequest().body(new ApiResponse(false, "No active monitoring session"));
+            }
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(new ApiResponse(true, "Frame " + sequence + " accepted for analysis"));
+        } catch (IOException e) {
+            log.error("Error processing image", e);
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "Error processing image: " + e.getMessage()));
+        }
+    }
+
+    // Overloaded: the frame is not analyzed, the client retries after Retry-After seconds
+    private ResponseEntity<ApiResponse> tooManyRequests() {
+        long retryAfter = admissionController.retryAfterSeconds();
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                .body(new ApiResponse(false, "Server busy, retry in " + retryAfter + " s"));
+    }
+
+    @GetMapping("/analyze/result")
+    public ResponseEntity<FrameAnalysisResult> getLatestResult(@RequestParam("sessionId") String sessionId) {
+        FrameAnalysisResult result = asyncFrameAnalysisService.getLatestResult(sessionId);
+        if (result == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(result);
+    }
+
     @PostMapping("/stop")
     public ResponseEntity<?> stopMonitoring(@RequestParam("sessionId") String sessionId) {
         try {
             cheatingDetectionService.stopMonitoring(sessionId);
+            asyncFrameAnalysisService.removeSession(sessionId);
+            frameStreamWebSocketHandler.closeSession(sessionId);
             return ResponseEntity.ok(new ApiResponse(true, "Monitoring session stopped"));
         } catch (Exception e) {
             log.error("Error stopping monitoring session", e);
             return ResponseEntity.badRequest().body(new ApiResponse(false, "Error: " + e.getMessage()));
         }
     }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("detectorPool", detectorPool.getStats());
+        metrics.put("asyncAnalysis", asyncFrameAnalysisService.getStats());
+        metrics.put("opencvExecutor", openCvExecutor.getStats());
+        metrics.put("intraFrame", intraFrameExecutor.getStats());
+        metrics.put("frameBuffers", frameBufferPool.getStats());
+        metrics.put("faceTracking", faceDetectionService.getTrackingStats());
+        metrics.put("faceDetectionBatching", faceDetectionBatcher.getStats());
+        metrics.put("evidenceWriter", evidenceWriter.getStats());
+        metrics.put("admission", admissionController.getStats());
+        metrics.put("sampling", samplingPolicy.getStats());
+        metrics.put("incidents", incidentAggregator.getStats());
+        metrics.put("activityWriter", suspiciousActivityWriter.getStats());
+        metrics.put("models", modelRegistry.getStats());
+        metrics.put("jvm", jvmStats());
+        return ResponseEntity.ok(metrics);
+    }
+
+    // Process CPU and heap, sampled by the load generator next to the service counters
+    private Map<String, Object> jvmStats() {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            stats.put("processCpuLoad", Math.round(os.getProcessCpuLoad() * 1000) / 1000.0);
+        }
+        stats.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        stats.put("heapUsedBytes", heap.getUsed());
+        stats.put("heapCommittedBytes", heap.getCommitted());
+        stats.put("heapMaxBytes", heap.getMax());
+        stats.put("liveThreads", ManagementFactory.getThreadMXBean().getThreadCount());
+        return stats;
+    }
 }
\ No newline at end of file
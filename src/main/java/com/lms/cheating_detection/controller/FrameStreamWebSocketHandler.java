@@ -0,0 +1,160 @@
+package com.lms.cheating_detection.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lms.cheating_detection.model.FrameAnalysisResult;
+import com.lms.cheating_detection.service.AdmissionController;
+import com.lms.cheating_detection.service.AsyncFrameAnalysisService;
+import com.lms.cheating_detection.service.ClientCheatingDetectionService;
+import com.lms.cheating_detection.service.FrameBufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.BinaryWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Long-lived frame stream for one monitoring session: ws://host/ws/client-monitoring?sessionId=..&examId=..
+// Each binary message is one JPEG frame; verdicts are pushed back as JSON text messages on the same socket.
+// The session must have been started with /start first; /stop closes the socket.
+@Component
+public class FrameStreamWebSocketHandler extends BinaryWebSocketHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(FrameStreamWebSocketHandler.class);
+
+    private static final String SESSION_ID = "sessionId";
+    private static final String EXAM_ID = "examId";
+    private static final String LISTENER = "resultListener";
+    private static final CloseStatus NOT_MONITORING =
+            CloseStatus.POLICY_VIOLATION.withReason("No active monitoring session, call /start first");
+
+    private final ClientCheatingDetectionService cheatingDetectionService;
+    private final AsyncFrameAnalysisService asyncFrameAnalysisService;
+    private final FrameBufferPool frameBufferPool;
+    private final AdmissionController admissionController;
+    private final ObjectMapper objectMapper;
+
+    // One open socket per monitoring session; a reconnect replaces the previous one
+    private final Map<String, WebSocketSession> openSockets = new ConcurrentHashMap<>();
+
+    public FrameStreamWebSocketHandler(ClientCheatingDetectionService cheatingDetectionService,
+                                       AsyncFrameAnalysisService asyncFrameAnalysisService,
+                                       FrameBufferPool frameBufferPool,
+                                       AdmissionController admissionController,
+                                       ObjectMapper objectMapper) {
+        this.cheatingDetectionService = cheatingDetectionService;
+        this.asyncFrameAnalysisService = asyncFrameAnalysisService;
+        this.frameBufferPool = frameBufferPool;
+        this.admissionController = admissionController;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        Map<String, String> params = UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().toSingleValueMap();
+        String sessionId = params.get(SESSION_ID);
+        String examId = params.get(EXAM_ID);
+
+        if (sessionId == null || examId == null) {
+            session.close(CloseStatus.BAD_DATA.withReason("sessionId and examId are required"));
+            return;
+        }
+
+        // Connecting never starts monitoring: a reconnect after /stop must not silently resume it
+        if (!cheatingDetectionService.isMonitoring(sessionId)) {
+            session.close(NOT_MONITORING);
+            return;
+        }
+
+        session.getAttributes().put(SESSION_ID, sessionId);
+        session.getAttributes().put(EXAM_ID, examId);
+
+        // Verdicts are produced on analysis workers, so sends must go through a thread-safe decorator
+        WebSocketSession concurrentSession = new ConcurrentWebSocketSessionDecorator(session, 5000, 64 * 1024);
+        Consumer<FrameAnalysisResult> listener = result -> sendResult(concurrentSession, result);
+        session.getAttributes().put(LISTENER, listener);
+        if (!asyncFrameAnalysisService.setResultListener(sessionId, listener)) {
+            session.close(NOT_MONITORING);
+            return;
+        }
+
+        WebSocketSession previous = openSockets.put(sessionId, session);
+        if (previous != null && previous.isOpen()) {
+            previous.close(CloseStatus.POLICY_VIOLATION.withReason("Replaced by a newer connection"));
+        }
+        log.info("Frame stream opened for session: {}", sessionId);
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws IOException {
+        String sessionId = (String) session.getAttributes().get(SESSION_ID);
+        String examId = (String) session.getAttributes().get(EXAM_ID);
+        if (sessionId == null) {
+            return;
+        }
+        // Stopped while the socket was still open (or /stop raced with the close below)
+        if (!cheatingDetectionService.isMonitoring(sessionId)) {
+            session.close(NOT_MONITORING);
+            return;
+        }
+        // Overloaded: drop the frame silently, the stream simply delivers the next one
+        if (!admissionController.tryAdmit(sessionId, cheatingDetectionService.isEscalated(sessionId))) {
+            return;
+        }
+
+        if (asyncFrameAnalysisService.submit(sessionId, examId, frameBufferPool.copyOf(message.getPayload())) < 0) {
+            session.close(NOT_MONITORING);
+        }
+    }
+
+    // Called from /stop: the stream of a stopped session is closed instead of left feeding frames
+    public void closeSession(String sessionId) {
+        WebSocketSession session = openSockets.remove(sessionId);
+        if (session != null && session.isOpen()) {
+            try {
+                session.close(CloseStatus.NORMAL.withReason("Monitoring session stopped"));
+            } catch (IOException e) {
+                log.warn("Failed to close frame stream for session: {}", sessionId, e);
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        String sessionId = (String) session.getAttributes().get(SESSION_ID);
+        if (sessionId == null) {
+            return;
+        }
+
+        // Monitoring itself keeps running until /stop; a dropped socket may simply reconnect
+        Consumer<FrameAnalysisResult> listener = (Consumer<FrameAnalysisResult>) session.getAttributes().get(LISTENER);
+        asyncFrameAnalysisService.clearResultListener(sessionId, listener);
+        openSockets.remove(sessionId, session);
+        log.info("Frame stream closed for session: {} ({})", sessionId, status);
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.warn("Frame stream transport error for session: {}", session.getAttributes().get(SESSION_ID), exception);
+    }
+
+    private void sendResult(WebSocketSession session, FrameAnalysisResult result) {
+        if (!session.isOpen()) {
+            return;
+        }
+        try {
+            session.sendMessage(new TextMessage(objectMapper.writeValueAsString(result)));
+        } catch (IOException e) {
+            log.warn("Failed to send verdict for session: {}", result.getSessionId(), e);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.lms.cheating_detection.dto;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -7,6 +8,7 @@ import java.time.LocalDateTime;
 
 @Data
 @NoArgsConstructor
+@AllArgsConstructor
 public class SuspiciousActivityDTO {
     private Long id;
     private String sessionId;
@@ -14,4 +16,6 @@ public class SuspiciousActivityDTO {
     private String description;
     private LocalDateTime timestamp;
     private String evidencePath;
+    private LocalDateTime endTimestamp;
+    private Integer frameCount;
 }
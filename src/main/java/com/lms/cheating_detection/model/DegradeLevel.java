@@ -0,0 +1,13 @@
+package com.lms.cheating_detection.model;
+
+// How much of the pipeline a frame gets under load, in escalation order
+public enum DegradeLevel {
+    // Full analysis in the session's detection mode
+    NORMAL,
+    // Face count only; eye, head pose and gaze analysis are skipped
+    SKIP_EYES,
+    // Face count only, on the reduced-resolution decode of the fast mode
+    REDUCED,
+    // Not analyzed; the client is told to retry later
+    REJECT
+}
@@ -0,0 +1,18 @@
+package com.lms.cheating_detection.model;
+
+import java.util.Locale;
+
+public enum DetectionMode {
+    // Full-resolution face search on the equalized gray frame
+    ACCURATE,
+    // Face search on a reduced-resolution decode, eyes analyzed on full-resolution face ROIs
+    FAST;
+
+    public static DetectionMode parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown detection mode: " + value + " (expected accurate or fast)");
+        }
+    }
+}
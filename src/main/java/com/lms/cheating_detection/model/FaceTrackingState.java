@@ -0,0 +1,37 @@
+package com.lms.cheating_detection.model;
+
+import org.opencv.core.Rect;
+
+// Last known face position of one session, in the coordinates of the image the face search runs on.
+// Lets the next frame be searched in a small window around it instead of the whole image.
+public class FaceTrackingState {
+    private int x;
+    private int y;
+    private int width;
+    private int height;
+    private boolean tracking;
+    private int framesSinceFullScan;
+
+    // True when the next search may be local; false when a full keyframe scan is due
+    public synchronized boolean canTrack(int keyframeInterval) {
+        return tracking && framesSinceFullScan < keyframeInterval;
+    }
+
+    public synchronized Rect lastFace() {
+        return new Rect(x, y, width, height);
+    }
+
+    public synchronized void update(Rect face, boolean fullScan) {
+        x = face.x;
+        y = face.y;
+        width = face.width;
+        height = face.height;
+        tracking = true;
+        framesSinceFullScan = fullScan ? 0 : framesSinceFullScan + 1;
+    }
+
+    public synchronized void reset() {
+        tracking = false;
+        framesSinceFullScan = 0;
+    }
+}
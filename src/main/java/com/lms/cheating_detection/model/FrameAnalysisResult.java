@@ -0,0 +1,22 @@
+package com.lms.cheating_detection.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Setter
+@Getter
+@NoArgsConstructor
+public class FrameAnalysisResult {
+    private String sessionId;
+    private long frameSequence;     // sequence number assigned when the frame was accepted
+    private boolean suspicious;
+    private String description;
+    private String evidenceType;
+    private LocalDateTime analyzedAt;
+    private long queueDelayMs;      // time the frame spent waiting for a worker
+    private long droppedFrames;     // frames of this session discarded because its queue was full
+    private long nextCaptureIntervalMs; // when the client should capture its next frame
+}
@@ -0,0 +1,37 @@
+package com.lms.cheating_detection.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Server-side state of one client monitoring session
+@Getter
+public class MonitoringSession {
+    private final String sessionId;
+    private final String examId;
+
+    @Setter
+    private DetectionMode detectionMode;
+
+    private final FaceTrackingState faceTracking = new FaceTrackingState();
+
+    private final VerdictFilter verdictFilter;
+
+    // Consecutive compliant frames, drives the adaptive capture interval
+    private final AtomicInteger compliantFrames = new AtomicInteger();
+
+    @Setter
+    private volatile long nextCaptureIntervalMs;
+
+    // The latest smoothed verdict is suspicious; its follow-ups may use the admission escalation reserve
+    @Setter
+    private volatile boolean escalated;
+
+    public MonitoringSession(String sessionId, String examId, DetectionMode detectionMode, VerdictFilter verdictFilter) {
+        this.sessionId = sessionId;
+        this.examId = examId;
+        this.detectionMode = detectionMode;
+        this.verdictFilter = verdictFilter;
+    }
+}
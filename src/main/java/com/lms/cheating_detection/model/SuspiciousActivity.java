@@ -8,7 +8,12 @@ import lombok.Setter;
 
 import java.time.LocalDateTime;
 @Entity
-@Table(name = "suspicious_activities")
+@Table(name = "suspicious_activities", indexes = {
+        // Keyset pagination runs on (filter, timestamp, id)
+        @Index(name = "idx_activity_exam_time", columnList = "exam_id, timestamp, id"),
+        @Index(name = "idx_activity_session_time", columnList = "session_id, timestamp, id"),
+        @Index(name = "idx_activity_time", columnList = "timestamp, id")
+})
 @Data
 @Getter
 @Setter
@@ -33,4 +38,12 @@ public class SuspiciousActivity {
 
     @Column
     private String evidencePath;
+
+    // Last frame of the incident; null for single-frame rows written before incidents were merged
+    @Column
+    private LocalDateTime endTimestamp;
+
+    // Number of flagged frames merged into this incident
+    @Column
+    private Integer frameCount;
 }
\ No newline at end of file
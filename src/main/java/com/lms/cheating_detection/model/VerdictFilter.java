@@ -0,0 +1,105 @@
+package com.lms.cheating_detection.model;
+
+import java.util.Arrays;
+
+// Temporal filter over the per-frame verdicts of one session. Head pose and gaze are smoothed with
+// an exponential moving average, and a verdict is only raised once at least `required` of the last
+// `window` frames were suspicious. Once raised it stays armed until the count falls to `release`
+// (hysteresis), so a sustained event does not flicker. O(1) per frame, no allocation after construction.
+public class VerdictFilter {
+    private final double alpha;
+    private final int required;
+    private final int release;
+    private final boolean[] recent;
+
+    private double yaw;
+    private double pitch;
+    private double leftGaze;
+    private double rightGaze;
+    private boolean hasPose;
+
+    private int next;
+    private int filled;
+    private int suspiciousCount;
+    private boolean raised;
+
+    public VerdictFilter(double alpha, int window, int required, int release) {
+        if (window < 1 || required < 1 || required > window || release < 0 || release >= required) {
+            throw new IllegalArgumentException("Invalid verdict filter: window=" + window
+                    + ", required=" + required + ", release=" + release);
+        }
+        this.alpha = alpha;
+        this.required = required;
+        this.release = release;
+        this.recent = new boolean[window];
+    }
+
+    // Feeds one frame's pose into the moving averages
+    public synchronized void updatePose(double yaw, double pitch, double leftGaze, double rightGaze) {
+        if (!hasPose) {
+            this.yaw = yaw;
+            this.pitch = pitch;
+            this.leftGaze = leftGaze;
+            this.rightGaze = rightGaze;
+            hasPose = true;
+            return;
+        }
+        this.yaw += alpha * (yaw - this.yaw);
+        this.pitch += alpha * (pitch - this.pitch);
+        this.leftGaze += alpha * (leftGaze - this.leftGaze);
+        this.rightGaze += alpha * (rightGaze - this.rightGaze);
+    }
+
+    // Without a face the pose history is stale; the next pose starts a fresh average
+    public synchronized void clearPose() {
+        hasPose = false;
+    }
+
+    public synchronized double getYaw() {
+        return yaw;
+    }
+
+    public synchronized double getPitch() {
+        return pitch;
+    }
+
+    public synchronized double getLeftGaze() {
+        return leftGaze;
+    }
+
+    public synchronized double getRightGaze() {
+        return rightGaze;
+    }
+
+    // Records one frame's verdict and returns whether the session is currently raised
+    public synchronized boolean push(boolean suspicious) {
+        if (filled == recent.length) {
+            if (recent[next]) {
+                suspiciousCount--;
+            }
+        } else {
+            filled++;
+        }
+        recent[next] = suspicious;
+        if (suspicious) {
+            suspiciousCount++;
+        }
+        next = (next + 1) % recent.length;
+
+        if (!raised && suspiciousCount >= required) {
+            raised = true;
+        } else if (raised && suspiciousCount <= release) {
+            raised = false;
+        }
+        return raised;
+    }
+
+    public synchronized void reset() {
+        hasPose = false;
+        next = 0;
+        filled = 0;
+        suspiciousCount = 0;
+        raised = false;
+        Arrays.fill(recent, false);
+    }
+}
@@ -1,8 +1,12 @@
 package com.lms.cheating_detection.repository;
 
 
+import com.lms.cheating_detection.dto.SuspiciousActivityDTO;
 import com.lms.cheating_detection.model.SuspiciousActivity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -14,4 +18,37 @@ public interface SuspiciousActivityRepository extends JpaRepository<SuspiciousAc
     List<SuspiciousActivity> findByExamId(String examId);
     List<SuspiciousActivity> findBySessionIdAndExamId(String sessionId, String examId);
     List<SuspiciousActivity> findByTimestampBetween(LocalDateTime start, LocalDateTime end);
-}
\ No newline at end of file
+
+    // Keyset pages ordered by (timestamp, id), projected straight into DTOs without loading entities.
+    // Pass the last row of the previous page as afterTimestamp/afterId; Pageable only carries the page size.
+    // The leading timestamp >= bound is what lets the database start the index range scan at the cursor;
+    // the OR alone would be a filter over every row before it.
+    String PAGE_SELECT = "SELECT new com.lms.cheating_detection.dto.SuspiciousActivityDTO(" +
+            "a.id, a.sessionId, a.examId, a.description, a.timestamp, a.evidencePath, a.endTimestamp, a.frameCount) FROM SuspiciousActivity a ";
+    String PAGE_AFTER = "a.timestamp >= :afterTimestamp AND (a.timestamp > :afterTimestamp OR a.id > :afterId) " +
+            "ORDER BY a.timestamp, a.id";
+
+    @Query(PAGE_SELECT + "WHERE a.sessionId = :sessionId AND a.examId = :examId AND " + PAGE_AFTER)
+    List<SuspiciousActivityDTO> findPageBySessionIdAndExamId(@Param("sessionId") String sessionId,
+                                                             @Param("examId") String examId,
+                                                             @Param("afterTimestamp") LocalDateTime afterTimestamp,
+                                                             @Param("afterId") Long afterId,
+                                                             Pageable pageable);
+
+    @Query(PAGE_SELECT + "WHERE a.sessionId = :sessionId AND " + PAGE_AFTER)
+    List<SuspiciousActivityDTO> findPageBySessionId(@Param("sessionId") String sessionId,
+                                                    @Param("afterTimestamp") LocalDateTime afterTimestamp,
+                                                    @Param("afterId") Long afterId,
+                                                    Pageable pageable);
+
+    @Query(PAGE_SELECT + "WHERE a.examId = :examId AND " + PAGE_AFTER)
+    List<SuspiciousActivityDTO> findPageByExamId(@Param("examId") String examId,
+                                                 @Param("afterTimestamp") LocalDateTime afterTimestamp,
+                                                 @Param("afterId") Long afterId,
+                                                 Pageable pageable);
+
+    @Query(PAGE_SELECT + "WHERE " + PAGE_AFTER)
+    List<SuspiciousActivityDTO> findPage(@Param("afterTimestamp") LocalDateTime afterTimestamp,
+                                         @Param("afterId") Long afterId,
+                                         Pageable pageable);
+}
@@ -0,0 +1,17 @@
+package com.lms.cheating_detection.response;
+
+import lombok.*;
+
+// Verdict of the synchronous analyze endpoint; success/message keep the ApiResponse shape for older clients
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Builder
+public class AnalyzeFrameResponse {
+    private boolean success;
+    private String message;
+    private boolean suspicious;
+    private long nextCaptureIntervalMs;
+}
@@ -0,0 +1,278 @@
+package com.lms.cheating_detection.service;
+
+import com.lms.cheating_detection.model.DegradeLevel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Admission control for frame analysis. Pressure is the larger of in-flight analyses over
+// admission.max-in-flight and the smoothed latency (queue wait + analysis) over the SLO target.
+// As pressure rises, frames first lose the eye/gaze stage, then run on the reduced decode, and
+// past admission.reject-at new frames are rejected with 429 + Retry-After.
+// At that level admitted work is bounded by the node's measured capacity (max-in-flight / average
+// analysis time frames per second), split into two token buckets. admission.escalation-share of it
+// is reserved for escalated sessions (their smoothed verdict is suspicious), so follow-up frames of
+// a likely incident still get through; the rest is shared equally between active sessions (one
+// frame per sessions / capacity seconds), so no client can starve the others by posting faster.
+// An escalated session that finds the reserve empty competes for its fair share like any other,
+// so an alert storm cannot push admitted work past capacity.
+// Callers check that the session is monitored before asking, so only live sessions are tracked;
+// entries idle for session-idle-ms are dropped anyway.
+@Component
+public class AdmissionController {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionController.class);
+
+    @Value("${admission.enabled:true}")
+    private boolean enabled;
+
+    // 0 = two per available core
+    @Value("${admission.max-in-flight:0}")
+    private int configuredMaxInFlight;
+
+    @Value("${admission.slo.latency-ms:1000}")
+    private long sloLatencyMs;
+
+    @Value("${admission.skip-eyes-at:0.7}")
+    private double skipEyesAt;
+
+    @Value("${admission.reduce-at:0.85}")
+    private double reduceAt;
+
+    @Value("${admission.reject-at:1.0}")
+    private double rejectAt;
+
+    // A session without an admitted frame for this long no longer counts as active
+    @Value("${admission.session-idle-ms:30000}")
+    private long sessionIdleMs;
+
+    // Fraction of capacity reserved for escalated sessions at REJECT level; 0 = no reserve
+    @Value("${admission.escalation-share:0.25}")
+    private double escalationShare;
+
+    private int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<String, Long> lastAdmitted = new ConcurrentHashMap<>();
+    private final AtomicLong lastPruneMillis = new AtomicLong();
+
+    // Smoothed latencies in ms, guarded by this
+    private double analysisLatencyMs;
+    private double queueDelayMs;
+
+    // Capacity budget used at REJECT level, guarded by this
+    private double sharedBurst;
+    private double escalationBurst;
+    private double tokens;
+    private double escalationTokens;
+    private long lastRefillMillis;
+    private long fairShareMs;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder escalationsAdmitted = new LongAdder();
+    private final LongAdder eyesSkipped = new LongAdder();
+    private final LongAdder reduced = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        maxInFlight = configuredMaxInFlight > 0 ? configuredMaxInFlight : Runtime.getRuntime().availableProcessors() * 2;
+        if (escalationShare < 0 || escalationShare >= 1) {
+            throw new IllegalStateException("admission.escalation-share must be in [0, 1): " + escalationShare);
+        }
+        escalationBurst = escalationShare > 0 ? Math.max(1, maxInFlight * escalationShare) : 0;
+        sharedBurst = Math.max(1, maxInFlight - escalationBurst);
+        tokens = sharedBurst;
+        escalationTokens = escalationBurst;
+        lastRefillMillis = System.currentTimeMillis();
+        log.info("Admission control {}: max in-flight {}, latency SLO {} ms", enabled ? "enabled" : "disabled",
+                maxInFlight, sloLatencyMs);
+    }
+
+    // Gate for new frames of a monitored session; false means answer 429 with retryAfterSeconds().
+    // escalated: the session's smoothed verdict is suspicious, it may draw on the reserved share.
+    public boolean tryAdmit(String sessionId, boolean escalated) {
+        if (!enabled) {
+            return true;
+        }
+
+        long now = System.currentTimeMillis();
+        pruneIdleSessions(now);
+        if (levelFor(pressure()) == DegradeLevel.REJECT) {
+            if (escalated && takeEscalationToken(now)) {
+                escalationsAdmitted.increment();
+            } else if (!takeFairShare(sessionId, now)) {
+                rejected.increment();
+                return false;
+            }
+        }
+        lastAdmitted.put(sessionId, now);
+        admitted.increment();
+        return true;
+    }
+
+    // One frame of the reserved escalation budget, if any is left
+    private synchronized boolean takeEscalationToken(long now) {
+        if (capacityPerMs() <= 0) {
+            return true;
+        }
+        refill(now);
+        if (escalationTokens < 1) {
+            return false;
+        }
+        escalationTokens -= 1;
+        return true;
+    }
+
+    // One frame of the shared capacity budget, if the session has not used its share yet
+    private synchronized boolean takeFairShare(String sessionId, long now) {
+        double capacityPerMs = capacityPerMs();
+        if (capacityPerMs <= 0) {
+            // No analysis measured yet: concurrency alone cannot size the budget
+            return true;
+        }
+
+        refill(now);
+        double sharedPerMs = capacityPerMs * (1 - escalationShare);
+        Long last = lastAdmitted.get(sessionId);
+        int sessions = lastAdmitted.size() + (last == null ? 1 : 0);
+        fairShareMs = (long) (sessions / sharedPerMs);
+
+        if ((last != null && now - last < fairShareMs) || tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    private synchronized void refill(long now) {
+        double refilled = (now - lastRefillMillis) * capacityPerMs();
+        lastRefillMillis = now;
+        tokens = Math.min(sharedBurst, tokens + refilled * (1 - escalationShare));
+        escalationTokens = Math.min(escalationBurst, escalationTokens + refilled * escalationShare);
+    }
+
+    // Frames per ms the node sustains with every analysis slot busy
+    private synchronized double capacityPerMs() {
+        return analysisLatencyMs >= 1 ? maxInFlight / analysisLatencyMs : 0;
+    }
+
+    // At most once per second: drop sessions that stopped sending without /stop
+    private void pruneIdleSessions(long now) {
+        long last = lastPruneMillis.get();
+        if (now - last >= 1000 && lastPruneMillis.compareAndSet(last, now)) {
+            lastAdmitted.values().removeIf(admittedAt -> now - admittedAt > sessionIdleMs);
+        }
+    }
+
+    // Marks the start of an analysis; close the ticket when it is done
+    public Ticket enter() {
+        inFlight.incrementAndGet();
+        DegradeLevel level = enabled ? levelFor(pressure()) : DegradeLevel.NORMAL;
+        if (level == DegradeLevel.REJECT) {
+            // Already admitted: analyze as cheaply as possible rather than dropping the frame
+            level = DegradeLevel.REDUCED;
+        }
+        if (level == DegradeLevel.SKIP_EYES) {
+            eyesSkipped.increment();
+        } else if (level == DegradeLevel.REDUCED) {
+            reduced.increment();
+        }
+        return new Ticket(level, System.nanoTime());
+    }
+
+    public synchronized void recordQueueDelay(long delayMs) {
+        queueDelayMs += 0.2 * (delayMs - queueDelayMs);
+    }
+
+    synchronized void recordAnalysis(long latencyMs) {
+        analysisLatencyMs += 0.2 * (latencyMs - analysisLatencyMs);
+    }
+
+    public void forget(String sessionId) {
+        lastAdmitted.remove(sessionId);
+    }
+
+    // The session's share of the capacity budget, as last computed at REJECT level
+    public synchronized long retryAfterSeconds() {
+        return Math.max(1, (fairShareMs + 999) / 1000);
+    }
+
+    private synchronized double pressure() {
+        double concurrency = (double) inFlight.get() / maxInFlight;
+        double latency = (analysisLatencyMs + queueDelayMs) / sloLatencyMs;
+        return Math.max(concurrency, latency);
+    }
+
+    private DegradeLevel levelFor(double pressure) {
+        if (pressure >= rejectAt) {
+            return DegradeLevel.REJECT;
+        } else if (pressure >= reduceAt) {
+            return DegradeLevel.REDUCED;
+        } else if (pressure >= skipEyesAt) {
+            return DegradeLevel.SKIP_EYES;
+        }
+        return DegradeLevel.NORMAL;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public Map<String, Object> getStats() {
+        double pressure = pressure();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("level", levelFor(pressure).name());
+        stats.put("pressure", Math.round(pressure * 100) / 100.0);
+        stats.put("inFlight", inFlight.get());
+        stats.put("maxInFlight", maxInFlight);
+        synchronized (this) {
+            stats.put("avgAnalysisMs", Math.round(analysisLatencyMs));
+            stats.put("avgQueueDelayMs", Math.round(queueDelayMs));
+            stats.put("fairShareMs", fairShareMs);
+            stats.put("escalationTokens", Math.floor(escalationTokens * 100) / 100);
+        }
+        stats.put("sloLatencyMs", sloLatencyMs);
+        stats.put("escalationShare", escalationShare);
+        stats.put("admitted", admitted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("escalationsAdmitted", escalationsAdmitted.sum());
+        stats.put("activeSessions", lastAdmitted.size());
+        stats.put("eyesSkipped", eyesSkipped.sum());
+        stats.put("reduced", reduced.sum());
+        return stats;
+    }
+
+    public final class Ticket implements AutoCloseable {
+        private final DegradeLevel level;
+        private final long startNanos;
+        private boolean closed;
+
+        private Ticket(DegradeLevel level, long startNanos) {
+            this.level = level;
+            this.startNanos = startNanos;
+        }
+
+        public DegradeLevel level() {
+            return level;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                inFlight.decrementAndGet();
+                recordAnalysis((System.nanoTime() - startNanos) / 1_000_000);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.lms.cheating_detection.service;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfRect;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Scratch buffers of one detector pool slot, reused by every frame analyzed on that slot.
+// OpenCV only reallocates a destination Mat when size or type change, so once the first frame of
+// a resolution has been seen, gray conversion, eye search and pupil thresholding write into the
+// same native buffers. Intermediate results (eye boxes, pupil centers) are reported through the
+// primitive fields below instead of Rect/Point objects. Owned by one thread at a time via the
+// pool lease, so nothing here is synchronized.
+public final class AnalysisWorkspace implements AutoCloseable {
+
+    // Frame-sized gray image (accurate path) and gray face ROI (fast and DNN paths)
+    final Mat gray = new Mat();
+    final Mat faceGray = new Mat();
+
+    // Eye search output, read into eyeBoxes as x, y, width, height quadruples
+    final MatOfRect eyes = new MatOfRect();
+    int[] eyeBoxes = new int[16];
+    int eyeCount;
+
+    // Pupil search on one eye region at a time
+    final Mat eyeGray = new Mat();
+    final Mat eyeThreshold = new Mat();
+    final Mat hierarchy = new Mat();
+    final List<MatOfPoint> contours = new ArrayList<>();
+    final PupilLocator pupilLocator = new PupilLocator();
+
+    // Result of the last pupil search, relative to the eye region
+    double pupilX;
+    double pupilY;
+
+    // Copies the eye rectangles out of the native MatOfRect without creating Rect objects
+    void readEyes() {
+        eyeCount = (int) eyes.total();
+        if (eyeBoxes.length < eyeCount * 4) {
+            eyeBoxes = new int[eyeCount * 4];
+        }
+        if (eyeCount > 0) {
+            eyes.get(0, 0, eyeBoxes);
+        }
+    }
+
+    // Appends the eye boxes found by another slot's workspace, shifted right by offsetX.
+    // A box covering mostly the same area as one already present is the same eye seen in the
+    // overlap of both face parts and is dropped.
+    void mergeEyes(AnalysisWorkspace other, int offsetX) {
+        int found = eyeCount;
+        if (eyeBoxes.length < (found + other.eyeCount) * 4) {
+            eyeBoxes = Arrays.copyOf(eyeBoxes, (found + other.eyeCount) * 4);
+        }
+        for (int i = 0; i < other.eyeCount; i++) {
+            int x = other.eyeBoxes[i * 4] + offsetX;
+            int y = other.eyeBoxes[i * 4 + 1];
+            int width = other.eyeBoxes[i * 4 + 2];
+            int height = other.eyeBoxes[i * 4 + 3];
+            if (!overlapsEye(x, y, width, height, found)) {
+                eyeBoxes[eyeCount * 4] = x;
+                eyeBoxes[eyeCount * 4 + 1] = y;
+                eyeBoxes[eyeCount * 4 + 2] = width;
+                eyeBoxes[eyeCount * 4 + 3] = height;
+                eyeCount++;
+            }
+        }
+    }
+
+    private boolean overlapsEye(int x, int y, int width, int height, int count) {
+        for (int j = 0; j < count; j++) {
+            int bx = eyeBoxes[j * 4];
+            int by = eyeBoxes[j * 4 + 1];
+            int bw = eyeBoxes[j * 4 + 2];
+            int bh = eyeBoxes[j * 4 + 3];
+            int overlapX = Math.min(x + width, bx + bw) - Math.max(x, bx);
+            int overlapY = Math.min(y + height, by + bh) - Math.max(y, by);
+            if (overlapX > 0 && overlapY > 0
+                    && 2L * overlapX * overlapY > Math.min((long) width * height, (long) bw * bh)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Contours are created by findContours on every call; drop them before the next search
+    void clearContours() {
+        for (MatOfPoint contour : contours) {
+            contour.release();
+        }
+        contours.clear();
+    }
+
+    public double getPupilX() {
+        return pupilX;
+    }
+
+    public double getPupilY() {
+        return pupilY;
+    }
+
+    @Override
+    public void close() {
+        clearContours();
+        gray.release();
+        faceGray.release();
+        eyes.release();
+        eyeGray.release();
+        eyeThreshold.release();
+        hierarchy.release();
+    }
+}
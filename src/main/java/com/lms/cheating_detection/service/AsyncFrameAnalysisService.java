@@ -0,0 +1,272 @@
+package com.lms.cheating_detection.service;
+
+import com.lms.cheating_detection.model.FaceDetectionResult;
+import com.lms.cheating_detection.model.FrameAnalysisResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Accepts frames without blocking the servlet thread and analyzes them on a dedicated worker pool.
+// Every session has its own small queue that drops the oldest frame when full, so a slow or
+// bursty client can only ever delay itself. Sessions with pending frames wait in a shared
+// ready queue; a worker takes one frame per turn and puts the session back at the tail,
+// which gives round-robin fairness across sessions.
+@Service
+public class AsyncFrameAnalysisService {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncFrameAnalysisService.class);
+
+    private final ClientCheatingDetectionService cheatingDetectionService;
+    private final AdmissionController admissionController;
+
+    // 0 = one worker per available core
+    @Value("${analysis.async.workers:0}")
+    private int configuredWorkers;
+
+    @Value("${analysis.async.session-queue-capacity:3}")
+    private int sessionQueueCapacity;
+
+    private final Map<String, SessionQueue> sessionQueues = new ConcurrentHashMap<>();
+    private final BlockingQueue<SessionQueue> readySessions = new LinkedBlockingQueue<>();
+    private ExecutorService workers;
+    private volatile boolean running;
+
+    private final AtomicInteger queuedFrames = new AtomicInteger();
+    private final LongAdder acceptedFrames = new LongAdder();
+    private final LongAdder droppedFrames = new LongAdder();
+    private final LongAdder rejectedFrames = new LongAdder();
+    private final LongAdder processedFrames = new LongAdder();
+    private final LongAdder totalQueueDelayMs = new LongAdder();
+
+    public AsyncFrameAnalysisService(ClientCheatingDetectionService cheatingDetectionService,
+                                     AdmissionController admissionController) {
+        this.cheatingDetectionService = cheatingDetectionService;
+        this.admissionController = admissionController;
+    }
+
+    @PostConstruct
+    public void init() {
+        int workerCount = configuredWorkers > 0 ? configuredWorkers : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "frame-analysis-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            workers.submit(this::workerLoop);
+        }
+        log.info("Async frame analysis started with {} workers, per-session queue capacity {}",
+                workerCount, sessionQueueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        workers.shutdownNow();
+        workers.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    // Creates the session's queue; called on /start, frames of sessions without a queue are refused
+    public void openSession(String sessionId) {
+        sessionQueues.computeIfAbsent(sessionId, SessionQueue::new);
+    }
+
+    // Queues a frame for analysis and returns its sequence number, or -1 when the session has not
+    // been started (or was stopped meanwhile).
+    // Takes ownership of imageData: it is closed once analyzed or dropped
+    public long submit(String sessionId, String examId, PooledFrame imageData) {
+        SessionQueue queue = sessionQueues.get(sessionId);
+        if (queue == null) {
+            imageData.close();
+            rejectedFrames.increment();
+            return -1;
+        }
+
+        synchronized (queue) {
+            // removeSession may have run between the lookup and the lock
+            if (queue.closed) {
+                imageData.close();
+                rejectedFrames.increment();
+                return -1;
+            }
+            acceptedFrames.increment();
+            if (queue.frames.size() >= sessionQueueCapacity) {
+                queue.frames.pollFirst().imageData().close();
+                queue.droppedFrames++;
+                droppedFrames.increment();
+                queuedFrames.decrementAndGet();
+            }
+
+            long sequence = ++queue.lastSequence;
+            queue.frames.addLast(new PendingFrame(examId, imageData, sequence, System.currentTimeMillis()));
+            queuedFrames.incrementAndGet();
+
+            if (!queue.scheduled) {
+                queue.scheduled = true;
+                readySessions.offer(queue);
+            }
+            return sequence;
+        }
+    }
+
+    public FrameAnalysisResult getLatestResult(String sessionId) {
+        SessionQueue queue = sessionQueues.get(sessionId);
+        return queue != null ? queue.latestResult : null;
+    }
+
+    // Registers a push channel that receives every verdict of the session as soon as it is ready.
+    // Returns false when the session has not been started.
+    public boolean setResultListener(String sessionId, Consumer<FrameAnalysisResult> listener) {
+        SessionQueue queue = sessionQueues.get(sessionId);
+        if (queue == null) {
+            return false;
+        }
+        queue.resultListener = listener;
+        return true;
+    }
+
+    public void clearResultListener(String sessionId, Consumer<FrameAnalysisResult> listener) {
+        SessionQueue queue = sessionQueues.get(sessionId);
+        if (queue != null && queue.resultListener == listener) {
+            queue.resultListener = null;
+        }
+    }
+
+    public void removeSession(String sessionId) {
+        SessionQueue queue = sessionQueues.remove(sessionId);
+        if (queue != null) {
+            synchronized (queue) {
+                queue.closed = true;
+                queue.resultListener = null;
+                queuedFrames.addAndGet(-queue.frames.size());
+                queue.frames.forEach(frame -> frame.imageData().close());
+                queue.frames.clear();
+            }
+        }
+    }
+
+    private void workerLoop() {
+        while (running) {
+            SessionQueue queue;
+            try {
+                queue = readySessions.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            PendingFrame frame;
+            synchronized (queue) {
+                frame = queue.frames.pollFirst();
+                if (frame == null) {
+                    queue.scheduled = false;
+                    continue;
+                }
+                queuedFrames.decrementAndGet();
+            }
+
+            try (PooledFrame imageData = frame.imageData()) {
+                process(queue, frame);
+            } catch (Exception e) {
+                log.error("Error in async analysis for session: {}", queue.sessionId, e);
+            } finally {
+                // Re-queue at the tail so other sessions get their turn first
+                synchronized (queue) {
+                    if (queue.frames.isEmpty()) {
+                        queue.scheduled = false;
+                    } else {
+                        readySessions.offer(queue);
+                    }
+                }
+            }
+        }
+    }
+
+    private void process(SessionQueue queue, PendingFrame frame) {
+        long queueDelayMs = System.currentTimeMillis() - frame.acceptedAtMillis();
+        totalQueueDelayMs.add(queueDelayMs);
+        admissionController.recordQueueDelay(queueDelayMs);
+
+        FaceDetectionResult detection = cheatingDetectionService.analyze(queue.sessionId, frame.examId(), frame.imageData());
+        processedFrames.increment();
+        if (detection == null) {
+            return;
+        }
+
+        FrameAnalysisResult result = new FrameAnalysisResult();
+        result.setSessionId(queue.sessionId);
+        result.setFrameSequence(frame.sequence());
+        result.setSuspicious(detection.isSuspiciousActivity());
+        result.setDescription(detection.getDescription());
+        result.setEvidenceType(detection.getEvidenceType());
+        result.setAnalyzedAt(LocalDateTime.now());
+        result.setQueueDelayMs(queueDelayMs);
+        result.setDroppedFrames(queue.droppedFrames);
+        result.setNextCaptureIntervalMs(cheatingDetectionService.getNextCaptureInterval(queue.sessionId));
+        queue.latestResult = result;
+
+        Consumer<FrameAnalysisResult> listener = queue.resultListener;
+        if (listener != null) {
+            try {
+                listener.accept(result);
+            } catch (Exception e) {
+                log.warn("Failed to push analysis result for session: {}", queue.sessionId, e);
+            }
+        }
+    }
+
+    public int getQueuedFrames() {
+        return queuedFrames.get();
+    }
+
+    public Map<String, Object> getStats() {
+        long processed = processedFrames.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", sessionQueues.size());
+        stats.put("queuedFrames", queuedFrames.get());
+        stats.put("acceptedFrames", acceptedFrames.sum());
+        stats.put("droppedFrames", droppedFrames.sum());
+        stats.put("rejectedFrames", rejectedFrames.sum());
+        stats.put("processedFrames", processed);
+        stats.put("avgQueueDelayMs", processed == 0 ? 0 : totalQueueDelayMs.sum() / processed);
+        return stats;
+    }
+
+    private static final class SessionQueue {
+        private final String sessionId;
+        private final ArrayDeque<PendingFrame> frames = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean closed;
+        private long lastSequence;
+        private long droppedFrames;
+        private volatile FrameAnalysisResult latestResult;
+        private volatile Consumer<FrameAnalysisResult> resultListener;
+
+        private SessionQueue(String sessionId) {
+            this.sessionId = sessionId;
+        }
+    }
+
+    private record PendingFrame(String examId, PooledFrame imageData, long sequence, long acceptedAtMillis) {
+    }
+}
@@ -0,0 +1,215 @@
+package com.lms.cheating_detection.service;
+
+import org.opencv.objdetect.CascadeClassifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+// Bounded checkout pool of Haar cascade pairs.
+// CascadeClassifier keeps mutable scratch buffers inside the native object, so a single
+// instance must never run detectMultiScale from two threads at once. Each slot owns its
+// own face/eye classifiers and is handed to exactly one caller at a time.
+@Component
+@DependsOn("openCVConfig")
+public class CascadeDetectorPool {
+
+    private static final Logger log = LoggerFactory.getLogger(CascadeDetectorPool.class);
+
+    @Value("${opencv.haar.face:haarcascades/haarcascade_frontalface_default.xml}")
+    private String haarFaceCascadePath;
+
+    @Value("${opencv.haar.eye:haarcascades/haarcascade_eye.xml}")
+    private String haarEyeCascadePath;
+
+    // 0 = one slot per available core
+    @Value("${detection.pool.size:0}")
+    private int configuredPoolSize;
+
+    @Value("${detection.pool.acquire-timeout-ms:2000}")
+    private long acquireTimeoutMs;
+
+    private final ModelRegistry modelRegistry;
+    private BlockingQueue<CascadeDetector> idleDetectors;
+    private final List<CascadeDetector> allDetectors = new ArrayList<>();
+    private int poolSize;
+
+    // Pool-wait metrics
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contendedAcquisitions = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public CascadeDetectorPool(ModelRegistry modelRegistry) {
+        this.modelRegistry = modelRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        poolSize = configuredPoolSize > 0 ? configuredPoolSize : Runtime.getRuntime().availableProcessors();
+        idleDetectors = new ArrayBlockingQueue<>(poolSize);
+
+        // Each slot parses its own classifiers (the Java API cannot share a parsed cascade);
+        // the slots are independent, so they are parsed in parallel to shorten cold start
+        long start = System.nanoTime();
+        CascadeDetector[] detectors = new CascadeDetector[poolSize];
+        try {
+            modelRegistry.extract(haarFaceCascadePath);
+            modelRegistry.extract(haarEyeCascadePath);
+            IntStream.range(0, poolSize).parallel().forEach(i -> detectors[i] = createDetector());
+        } catch (RuntimeException e) {
+            log.error("Error loading cascade classifiers", e);
+            throw new RuntimeException("Error loading cascade classifiers", e);
+        }
+        for (CascadeDetector detector : detectors) {
+            allDetectors.add(detector);
+            idleDetectors.add(detector);
+        }
+        modelRegistry.recordLoad("haarCascades", start);
+
+        log.info("Cascade detector pool initialized with {} slots in {} ms (acquire timeout {} ms)",
+                poolSize, (System.nanoTime() - start) / 1_000_000, acquireTimeoutMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        idleDetectors.clear();
+        allDetectors.forEach(detector -> detector.getWorkspace().close());
+        allDetectors.clear();
+    }
+
+    // A classifier pair outside the pool, for components that confine detectors to their own threads
+    public CascadeDetector createDetector() {
+        return new CascadeDetector(
+                modelRegistry.loadCascade(haarFaceCascadePath),
+                modelRegistry.loadCascade(haarEyeCascadePath));
+    }
+
+    public Lease acquire() {
+        long start = System.nanoTime();
+        CascadeDetector detector = idleDetectors.poll();
+        try {
+            if (detector == null) {
+                contendedAcquisitions.increment();
+                detector = idleDetectors.poll(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a cascade detector", e);
+        }
+
+        long waited = System.nanoTime() - start;
+        if (detector == null) {
+            timeouts.increment();
+            throw new IllegalStateException("No cascade detector available within " + acquireTimeoutMs + " ms");
+        }
+
+        acquisitions.increment();
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        return new Lease(detector);
+    }
+
+    // Non-blocking checkout for optional extra work (intra-frame parallelism): only succeeds while
+    // more than minIdle slots are idle, so frames waiting for a slot of their own are not delayed
+    public Lease tryAcquire(int minIdle) {
+        if (idleDetectors.size() <= minIdle) {
+            return null;
+        }
+        CascadeDetector detector = idleDetectors.poll();
+        if (detector == null) {
+            return null;
+        }
+        acquisitions.increment();
+        return new Lease(detector);
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public int getAvailable() {
+        return idleDetectors.size();
+    }
+
+    public Map<String, Object> getStats() {
+        long count = acquisitions.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("poolSize", poolSize);
+        stats.put("available", idleDetectors.size());
+        stats.put("acquisitions", count);
+        stats.put("contendedAcquisitions", contendedAcquisitions.sum());
+        stats.put("timeouts", timeouts.sum());
+        stats.put("avgWaitMicros", count == 0 ? 0 : totalWaitNanos.sum() / count / 1_000);
+        stats.put("maxWaitMicros", maxWaitNanos.get() / 1_000);
+        return stats;
+    }
+
+    // A face/eye classifier pair owned by one pool slot, with the slot's reusable scratch buffers
+    public static final class CascadeDetector {
+        private final CascadeClassifier faceCascade;
+        private final CascadeClassifier eyesCascade;
+        private final AnalysisWorkspace workspace = new AnalysisWorkspace();
+
+        CascadeDetector(CascadeClassifier faceCascade, CascadeClassifier eyesCascade) {
+            this.faceCascade = faceCascade;
+            this.eyesCascade = eyesCascade;
+        }
+
+        public CascadeClassifier getFaceCascade() {
+            return faceCascade;
+        }
+
+        public CascadeClassifier getEyesCascade() {
+            return eyesCascade;
+        }
+
+        public AnalysisWorkspace getWorkspace() {
+            return workspace;
+        }
+    }
+
+    // Returns the slot to the pool when closed; use with try-with-resources
+    public final class Lease implements AutoCloseable {
+        private CascadeDetector detector;
+
+        private Lease(CascadeDetector detector) {
+            this.detector = detector;
+        }
+
+        public CascadeClassifier faceCascade() {
+            return detector.getFaceCascade();
+        }
+
+        public CascadeClassifier eyesCascade() {
+            return detector.getEyesCascade();
+        }
+
+        public AnalysisWorkspace workspace() {
+            return detector.getWorkspace();
+        }
+
+        @Override
+        public void close() {
+            if (detector != null) {
+                idleDetectors.offer(detector);
+                detector = null;
+            }
+        }
+    }
+}
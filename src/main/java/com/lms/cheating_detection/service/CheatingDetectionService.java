@@ -2,45 +2,43 @@ package com.lms.cheating_detection.service;
 import com.lms.cheating_detection.dto.SuspiciousActivityDTO;
 import com.lms.cheating_detection.model.SuspiciousActivity;
 import com.lms.cheating_detection.repository.SuspiciousActivityRepository;
-import jakarta.annotation.PostConstruct;
 
 import lombok.extern.slf4j.Slf4j;
 import org.opencv.core.*;
 import org.opencv.imgcodecs.Imgcodecs;
 import org.opencv.imgproc.Imgproc;
-import org.opencv.objdetect.CascadeClassifier;
 import org.opencv.videoio.VideoCapture;
 import org.opencv.videoio.Videoio;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import org.springframework.util.FileCopyUtils;
 
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 public class CheatingDetectionService {
 
     private static final int CAPTURE_INTERVAL = 5000; // 5 seconds
+    public static final int MAX_PAGE_SIZE = 1000;
+    private static final LocalDateTime FIRST_PAGE_TIMESTAMP = LocalDateTime.of(1970, 1, 1, 0, 0);
     private final SuspiciousActivityRepository suspiciousActivityRepository;
     private Map<String, VideoCapture> studentCaptures = new ConcurrentHashMap<>();
     private Map<String, ScheduledFuture<?>> monitoringTasks = new ConcurrentHashMap<>();
-    private ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(
-            Math.min(100, Runtime.getRuntime().availableProcessors() * 2)
-    );
-    private CascadeClassifier faceCascade;
-    private CascadeClassifier eyesCascade;
+    private final boolean virtualThreads;
+    private final ScheduledExecutorService scheduler;
+    private final Set<String> capturesInProgress = ConcurrentHashMap.newKeySet();
+    private final CascadeDetectorPool detectorPool;
+    private final OpenCvExecutor openCvExecutor;
+    private final EvidenceWriter evidenceWriter;
+    private final SuspiciousActivityWriter suspiciousActivityWriter;
 
 //    @Value("${opencv.haar.face:classpath:haarcascades/haarcascade_frontalface_default.xml}")
 //    private String faceClassifierPath;
@@ -48,53 +46,32 @@ public class CheatingDetectionService {
 //    @Value("${opencv.haar.eye:classpath:haarcascades/haarcascade_eye.xml}")
 //    private String eyeClassifierPath;
 
-    @Value("${evidence.folder:evidence}")
-    private String evidenceFolder;
-
-    public CheatingDetectionService(SuspiciousActivityRepository suspiciousActivityRepository) {
+    // Cascade classifiers are provided by CascadeDetectorPool, one pair per concurrent capture task;
+    // evidence images are written asynchronously by EvidenceWriter
+    public CheatingDetectionService(SuspiciousActivityRepository suspiciousActivityRepository,
+                                    CascadeDetectorPool detectorPool,
+                                    EvidenceWriter evidenceWriter,
+                                    SuspiciousActivityWriter suspiciousActivityWriter,
+                                    OpenCvExecutor openCvExecutor,
+                                    @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
         this.suspiciousActivityRepository = suspiciousActivityRepository;
-    }
-
-    @PostConstruct
-    public void init() {
-        try {
-            // Tải file từ classpath sử dụng Spring Resource
-            Resource faceResource = new ClassPathResource("haarcascades/haarcascade_frontalface_default.xml");
-            Resource eyeResource = new ClassPathResource("haarcascades/haarcascade_eye.xml");
-
-            // Sao chép các file vào thư mục tạm để OpenCV có thể đọc được
-            File tempFaceFile = File.createTempFile("face", ".xml");
-            File tempEyeFile = File.createTempFile("eye", ".xml");
-            tempFaceFile.deleteOnExit();
-            tempEyeFile.deleteOnExit();
-
-            FileCopyUtils.copy(faceResource.getInputStream(), new FileOutputStream(tempFaceFile));
-            FileCopyUtils.copy(eyeResource.getInputStream(), new FileOutputStream(tempEyeFile));
-
-            // Load các file từ đường dẫn tạm
-            this.faceCascade = new CascadeClassifier();
-            this.eyesCascade = new CascadeClassifier();
-
-            if (!this.faceCascade.load(tempFaceFile.getAbsolutePath())) {
-                log.error("Failed to load face cascade classifier");
-                throw new RuntimeException("Failed to load face cascade classifier");
-            }
-
-            if (!this.eyesCascade.load(tempEyeFile.getAbsolutePath())) {
-                log.error("Failed to load eye cascade classifier");
-                throw new RuntimeException("Failed to load eye cascade classifier");
-            }
-
-            log.info("Cascade classifiers loaded successfully");
-
-            // Create evidence directory if it doesn't exist
-            File directory = new File(evidenceFolder);
-            if (!directory.exists()) {
-                directory.mkdirs();
-            }
-        } catch (IOException e) {
-            log.error("Error loading cascade classifiers", e);
-            throw new RuntimeException("Error loading cascade classifiers", e);
+        this.detectorPool = detectorPool;
+        this.evidenceWriter = evidenceWriter;
+        this.suspiciousActivityWriter = suspiciousActivityWriter;
+        this.openCvExecutor = openCvExecutor;
+        this.virtualThreads = virtualThreads;
+        if (virtualThreads) {
+            // One timer thread only fires the ticks; capture and analysis run on the core-sized OpenCV pool,
+            // and a tick is skipped while the previous capture of the same session is still running
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "webcam-capture-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.scheduler = Executors.newScheduledThreadPool(
+                    Math.min(100, Runtime.getRuntime().availableProcessors() * 2)
+            );
         }
     }
 
@@ -118,8 +95,11 @@ public class CheatingDetectionService {
             studentCaptures.put(sessionId, videoCapture);
 
             // Start periodic capture
+            Runnable capture = virtualThreads
+                    ? () -> dispatchCapture(sessionId, examId)
+                    : () -> captureAndAnalyze(sessionId, examId);
             ScheduledFuture<?> task = scheduler.scheduleAtFixedRate(
-                    () -> captureAndAnalyze(sessionId, examId),
+                    capture,
                     0, CAPTURE_INTERVAL, TimeUnit.MILLISECONDS
             );
 
@@ -145,6 +125,23 @@ public class CheatingDetectionService {
         log.info("Stopped webcam monitoring for session: {}", sessionId);
     }
 
+    private void dispatchCapture(String sessionId, String examId) {
+        if (!capturesInProgress.add(sessionId)) {
+            return;
+        }
+        try {
+            openCvExecutor.execute(() -> {
+                try {
+                    captureAndAnalyze(sessionId, examId);
+                } finally {
+                    capturesInProgress.remove(sessionId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            capturesInProgress.remove(sessionId);
+        }
+    }
+
     private void captureAndAnalyze(String sessionId, String examId) {
         VideoCapture videoCapture = studentCaptures.get(sessionId);
         if (videoCapture == null || !videoCapture.isOpened()) {
@@ -156,7 +153,7 @@ public class CheatingDetectionService {
         Mat grayFrame = null;
         Mat smallFrame = null;
         MatOfRect faces = null;
-        try {
+        try (CascadeDetectorPool.Lease detector = detectorPool.acquire()) {
             frame = new Mat();
             if (!videoCapture.read(frame) || frame.empty()) {
                 log.error("Empty frame captured for session: {}", sessionId);
@@ -174,7 +171,7 @@ public class CheatingDetectionService {
 
             faces = new MatOfRect();
             // Detect faces
-            faceCascade.detectMultiScale(
+            detector.faceCascade().detectMultiScale(
                     smallFrame,
                     faces,
                     1.2,        // Tăng scaleFactor để cải thiện tốc độ
@@ -227,7 +224,7 @@ public class CheatingDetectionService {
                         eyes = new MatOfRect();
 
                         // Tối ưu tham số phát hiện mắt
-                        eyesCascade.detectMultiScale(
+                        detector.eyesCascade().detectMultiScale(
                                 faceROI,
                                 eyes,
                                 1.1,
@@ -295,7 +292,7 @@ public class CheatingDetectionService {
             activity.setTimestamp(LocalDateTime.now());
             activity.setEvidencePath(evidencePath);
 
-            suspiciousActivityRepository.save(activity);
+            suspiciousActivityWriter.submit(activity);
 
             log.info("Suspicious activity logged: {} for session: {}", description, sessionId);
         } catch (Exception e) {
@@ -306,53 +303,45 @@ public class CheatingDetectionService {
     // Phương thức saveFrame() tối ưu hóa
     private String saveFrame(Mat frame, String sessionId, String type) {
         try {
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-            String filename = String.format("evidence_%s_%s_%s.jpg", sessionId, type, timestamp);
-            String path = evidenceFolder + File.separator + filename;
-
-            // Tối ưu chất lượng JPEG để tiết kiệm dung lượng
-            MatOfInt compressionParams = new MatOfInt(
-                    Imgcodecs.IMWRITE_JPEG_QUALITY,
-                    70  // Chất lượng 70% thay vì mặc định 95%
-            );
-
-            try {
-                Imgcodecs.imwrite(path, frame, compressionParams);
-                log.info("Saved optimized evidence frame to: {}", path);
-                return path;
-            } finally {
-                compressionParams.release();
-            }
+            // Mã hóa JPEG (chất lượng 70%) trên luồng này, ghi đĩa bất đồng bộ
+            return evidenceWriter.write(frame, sessionId, type);
         } catch (Exception e) {
             log.error("Error saving evidence frame for session: {}", sessionId, e);
             return null;
         }
     }
 
-    public List<SuspiciousActivityDTO> getSuspiciousActivities(String sessionId, String examId) {
-        List<SuspiciousActivity> activities;
+    // One keyset page ordered by (timestamp, id); afterTimestamp/afterId = last row of the previous page, null for the first
+    public List<SuspiciousActivityDTO> getSuspiciousActivities(String sessionId, String examId,
+                                                               LocalDateTime afterTimestamp, Long afterId, int limit) {
+        LocalDateTime timestamp = afterTimestamp != null ? afterTimestamp : FIRST_PAGE_TIMESTAMP;
+        long id = afterId != null ? afterId : 0L;
+        Pageable page = PageRequest.of(0, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
 
         if (sessionId != null && examId != null) {
-            activities = suspiciousActivityRepository.findBySessionIdAndExamId(sessionId, examId);
+            return suspiciousActivityRepository.findPageBySessionIdAndExamId(sessionId, examId, timestamp, id, page);
         } else if (sessionId != null) {
-            activities = suspiciousActivityRepository.findBySessionId(sessionId);
+            return suspiciousActivityRepository.findPageBySessionId(sessionId, timestamp, id, page);
         } else if (examId != null) {
-            activities = suspiciousActivityRepository.findByExamId(examId);
+            return suspiciousActivityRepository.findPageByExamId(examId, timestamp, id, page);
         } else {
-            activities = suspiciousActivityRepository.findAll();
+            return suspiciousActivityRepository.findPage(timestamp, id, page);
         }
+    }
 
-        return activities.stream()
-                .map(activity -> {
-                    SuspiciousActivityDTO dto = new SuspiciousActivityDTO();
-                    dto.setId(activity.getId());
-                    dto.setSessionId(activity.getSessionId());
-                    dto.setExamId(activity.getExamId());
-                    dto.setDescription(activity.getDescription());
-                    dto.setTimestamp(activity.getTimestamp());
-                    dto.setEvidencePath(activity.getEvidencePath());
-                    return dto;
-                })
-                .collect(Collectors.toList());
+    // Walks all matching rows page by page, so an exam-wide export never holds more than one page in memory
+    public void exportSuspiciousActivities(String sessionId, String examId, Consumer<SuspiciousActivityDTO> consumer) {
+        LocalDateTime afterTimestamp = null;
+        Long afterId = null;
+        List<SuspiciousActivityDTO> page;
+        do {
+            page = getSuspiciousActivities(sessionId, examId, afterTimestamp, afterId, MAX_PAGE_SIZE);
+            page.forEach(consumer);
+            if (!page.isEmpty()) {
+                SuspiciousActivityDTO last = page.get(page.size() - 1);
+                afterTimestamp = last.getTimestamp();
+                afterId = last.getId();
+            }
+        } while (page.size() == MAX_PAGE_SIZE);
     }
-}
\ No newline at end of file
+}
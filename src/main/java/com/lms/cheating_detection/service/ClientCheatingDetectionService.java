@@ -1,18 +1,19 @@
 package com.lms.cheating_detection.service;
 
+import com.lms.cheating_detection.model.DegradeLevel;
+import com.lms.cheating_detection.model.DetectionMode;
 import com.lms.cheating_detection.model.FaceDetectionResult;
-import com.lms.cheating_detection.model.SuspiciousActivity;
-import com.lms.cheating_detection.repository.SuspiciousActivityRepository;
+import com.lms.cheating_detection.model.MonitoringSession;
+import com.lms.cheating_detection.model.VerdictFilter;
 import org.opencv.core.*;
 import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import jakarta.annotation.PostConstruct;
-import java.io.File;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
@@ -22,132 +23,241 @@ import java.util.concurrent.ConcurrentHashMap;
 public class ClientCheatingDetectionService {
 
     private static final Logger log = LoggerFactory.getLogger(ClientCheatingDetectionService.class);
+    private static final DateTimeFormatter ANNOTATION_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    private final SuspiciousActivityRepository suspiciousActivityRepository;
+    private final IncidentAggregator incidentAggregator;
+    private final SamplingPolicy samplingPolicy;
+    private final AdmissionController admissionController;
     private final MediaPipeFaceDetectionService mediaPipeFaceDetectionService;
-    private Map<String, Boolean> activeMonitoringSessions = new ConcurrentHashMap<>();
+    private final EvidenceWriter evidenceWriter;
+    private final DetectionMetrics metrics;
+    private Map<String, MonitoringSession> activeMonitoringSessions = new ConcurrentHashMap<>();
 
-    @Value("${evidence.folder:evidence}")
-    private String evidenceFolder;
+    // Default detection mode for sessions started without an explicit mode: accurate or fast
+    @Value("${detection.mode:accurate}")
+    private String defaultDetectionMode;
+
+    // Temporal smoothing: a verdict needs `required` suspicious frames out of the last `window`,
+    // and stays armed until the count drops to `release`; pose and gaze are averaged with ema-alpha
+    @Value("${detection.smoothing.enabled:true}")
+    private boolean smoothingEnabled;
+
+    @Value("${detection.smoothing.window:5}")
+    private int smoothingWindow;
+
+    @Value("${detection.smoothing.required:3}")
+    private int smoothingRequired;
+
+    @Value("${detection.smoothing.release:1}")
+    private int smoothingRelease;
+
+    @Value("${detection.smoothing.ema-alpha:0.5}")
+    private double smoothingAlpha;
+
+    // Evidence image: upload = the JPEG the browser sent, stored as is; frame = re-encode the decoded frame
+    @Value("${evidence.source:upload}")
+    private String evidenceSource;
+
+    // Stamp the verdict and time onto the evidence image (forces a decode + re-encode)
+    @Value("${evidence.annotate:false}")
+    private boolean annotateEvidence;
 
     @Autowired
     public ClientCheatingDetectionService(
-            SuspiciousActivityRepository suspiciousActivityRepository,
-            MediaPipeFaceDetectionService mediaPipeFaceDetectionService) {
-        this.suspiciousActivityRepository = suspiciousActivityRepository;
+            IncidentAggregator incidentAggregator,
+            SamplingPolicy samplingPolicy,
+            AdmissionController admissionController,
+            MediaPipeFaceDetectionService mediaPipeFaceDetectionService,
+            EvidenceWriter evidenceWriter,
+            DetectionMetrics metrics) {
+        this.incidentAggregator = incidentAggregator;
+        this.samplingPolicy = samplingPolicy;
+        this.admissionController = admissionController;
         this.mediaPipeFaceDetectionService = mediaPipeFaceDetectionService;
+        this.evidenceWriter = evidenceWriter;
+        this.metrics = metrics;
     }
 
-    @PostConstruct
-    public void init() {
-        // Create evidence directory if it doesn't exist
-        File directory = new File(evidenceFolder);
-        if (!directory.exists()) {
-            boolean created = directory.mkdirs();
-            if (created) {
-                log.info("Created evidence directory at: {}", directory.getAbsolutePath());
-            } else {
-                log.warn("Failed to create evidence directory at: {}", directory.getAbsolutePath());
-            }
-        }
+    public void startMonitoring(String sessionId, String examId) {
+        startMonitoring(sessionId, examId, null);
     }
 
-    public void startMonitoring(String sessionId, String examId) {
+    // mode selects the accuracy/latency trade-off for this session (e.g. per exam); null = configured default
+    public void startMonitoring(String sessionId, String examId, String mode) {
         if (activeMonitoringSessions.containsKey(sessionId)) {
             log.info("Monitoring already in progress for session: {}", sessionId);
             return;
         }
 
-        activeMonitoringSessions.put(sessionId, true);
-        log.info("Started monitoring session for session: {}", sessionId);
+        DetectionMode detectionMode = DetectionMode.parse(mode != null ? mode : defaultDetectionMode);
+        VerdictFilter verdictFilter = new VerdictFilter(smoothingAlpha, smoothingWindow, smoothingRequired, smoothingRelease);
+        MonitoringSession session = new MonitoringSession(sessionId, examId, detectionMode, verdictFilter);
+        session.setNextCaptureIntervalMs(samplingPolicy.getBaseIntervalMs());
+        activeMonitoringSessions.put(sessionId, session);
+        log.info("Started monitoring session for session: {} ({} mode)", sessionId, detectionMode);
     }
 
     public void stopMonitoring(String sessionId) {
         activeMonitoringSessions.remove(sessionId);
+        incidentAggregator.closeSession(sessionId);
+        admissionController.forget(sessionId);
         log.info("Stopped monitoring for session: {}", sessionId);
     }
 
-    public boolean analyzeFrame(String sessionId, String examId, byte[] imageData) {
-        if (!activeMonitoringSessions.containsKey(sessionId)) {
+    public int getActiveSessionCount() {
+        return activeMonitoringSessions.size();
+    }
+
+    public boolean isMonitoring(String sessionId) {
+        return activeMonitoringSessions.containsKey(sessionId);
+    }
+
+    public boolean isEscalated(String sessionId) {
+        MonitoringSession session = activeMonitoringSessions.get(sessionId);
+        return session != null && session.isEscalated();
+    }
+
+    // Capture interval recommended to the client after its latest analyzed frame
+    public long getNextCaptureInterval(String sessionId) {
+        MonitoringSession session = activeMonitoringSessions.get(sessionId);
+        return session != null ? session.getNextCaptureIntervalMs() : samplingPolicy.getBaseIntervalMs();
+    }
+
+    public boolean analyzeFrame(String sessionId, String examId, PooledFrame imageData) {
+        FaceDetectionResult result = analyze(sessionId, examId, imageData);
+        return result != null && result.isSuspiciousActivity();
+    }
+
+    // Runs the full pipeline for one frame; returns null when the frame could not be analyzed.
+    // The caller keeps ownership of imageData and closes it afterwards.
+    public FaceDetectionResult analyze(String sessionId, String examId, PooledFrame imageData) {
+        MonitoringSession session = activeMonitoringSessions.get(sessionId);
+        if (session == null) {
             log.warn("No active monitoring session for session: {}", sessionId);
-            return false;
+            return null;
         }
 
         Mat frame = null;
+        Mat encoded = null;
 
         try {
-            // Convert byte array to OpenCV Mat
-            frame = Imgcodecs.imdecode(new MatOfByte(imageData), Imgcodecs.IMREAD_COLOR);
-            if (frame.empty()) {
-                log.error("Failed to decode image for session: {}", sessionId);
-                return false;
+            // Decode straight from the pooled direct buffer, without a heap copy
+            encoded = imageData.asMat();
+
+            FaceDetectionResult result;
+            try (AdmissionController.Ticket ticket = admissionController.enter()) {
+                // Under load the eye/gaze stage is dropped first, then the full-resolution decode
+                DegradeLevel level = ticket.level();
+                boolean skipEyes = level != DegradeLevel.NORMAL;
+
+                if (session.getDetectionMode() == DetectionMode.FAST) {
+                    result = mediaPipeFaceDetectionService.analyzeEncodedFast(encoded, session.getFaceTracking(), skipEyes);
+                } else if (level == DegradeLevel.REDUCED) {
+                    // Tracking state of an accurate session is in full-resolution coordinates
+                    result = mediaPipeFaceDetectionService.analyzeEncodedFast(encoded, null, true);
+                } else {
+                    long start = System.nanoTime();
+                    frame = Imgcodecs.imdecode(encoded, Imgcodecs.IMREAD_COLOR);
+                    metrics.record(DetectionMetrics.Stage.DECODE, start);
+                    if (frame.empty()) {
+                        log.error("Failed to decode image for session: {}", sessionId);
+                        return null;
+                    }
+
+                    // Use MediaPipe Face Detection service for analysis
+                    result = mediaPipeFaceDetectionService.analyzeFrame(frame, session.getFaceTracking(), skipEyes);
+                }
             }
 
-            // Use MediaPipe Face Detection service for analysis
-            FaceDetectionResult result = mediaPipeFaceDetectionService.analyzeFrame(frame);
+            metrics.countVerdict(result.getEvidenceType());
 
-            // If suspicious activity is detected, save evidence and log
+            // Sample faster as soon as a frame looks off, even before smoothing confirms it
+            session.setNextCaptureIntervalMs(samplingPolicy.nextInterval(session, result.isSuspiciousActivity()));
+
+            if (smoothingEnabled) {
+                applyVerdictFilter(session.getVerdictFilter(), result);
+            }
+            // Only a sustained verdict may draw on the escalation reserve at REJECT level
+            session.setEscalated(result.isSuspiciousActivity());
+
+            // Suspicious frames feed the session's open incident; evidence and the DB row are written once it closes
             if (result.isSuspiciousActivity()) {
-                String evidencePath = saveFrame(frame, sessionId,
-                        result.getEvidenceType() != null ? result.getEvidenceType() : "suspicious");
-                logSuspiciousActivity(sessionId, examId, result.getDescription(), evidencePath);
-                return true;
+                String type = result.getEvidenceType() != null ? result.getEvidenceType() : "suspicious";
+                Mat encodedFrame = encoded;
+                Mat decodedFrame = frame;
+                incidentAggregator.record(sessionId, examId, type, result.getDescription(), severity(result),
+                        () -> evidenceImage(imageData, encodedFrame, decodedFrame, result));
             }
 
-            return false;
+            return result;
         } catch (Exception e) {
             log.error("Error analyzing frame for session: {}", sessionId, e);
-            return false;
+            return null;
         } finally {
             // Release resources
+            if (encoded != null) encoded.release();
             if (frame != null) frame.release();
         }
     }
 
-    private String saveFrame(Mat frame, String sessionId, String type) {
-        try {
-            // Ensure evidence directory exists
-            File directory = new File(evidenceFolder);
-            if (!directory.exists()) {
-                directory.mkdirs();
-            }
+    // Only sustained deviations stay suspicious; transient spikes are downgraded before any evidence or DB work
+    private void applyVerdictFilter(VerdictFilter filter, FaceDetectionResult result) {
+        boolean frameSuspicious = result.isSuspiciousActivity();
+        if (result.getHeadPose() != null && result.getEyeGaze() != null) {
+            filter.updatePose(result.getHeadPose().getYaw(), result.getHeadPose().getPitch(),
+                    result.getEyeGaze().getLeftEyeHorizontalGaze(), result.getEyeGaze().getRightEyeHorizontalGaze());
+            frameSuspicious = frameSuspicious && MediaPipeFaceDetectionService.isSuspiciousPose(
+                    filter.getYaw(), filter.getPitch(), filter.getLeftGaze(), filter.getRightGaze());
+        } else if (result.getFaceCount() != 1) {
+            filter.clearPose();
+        }
 
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-            String filename = String.format("evidence_%s_%s_%s.jpg", sessionId, type, timestamp);
-            String path = evidenceFolder + File.separator + filename;
+        boolean raised = filter.push(frameSuspicious);
+        if (result.isSuspiciousActivity() && !(raised && frameSuspicious)) {
+            result.setSuspiciousActivity(false);
+            result.setDescription(result.getDescription() + " (not sustained)");
+        }
+    }
 
-            // Optimize JPEG quality to save space
-            MatOfInt compressionParams = new MatOfInt(
-                    Imgcodecs.IMWRITE_JPEG_QUALITY,
-                    70  // 70% quality instead of default 95%
-            );
+    // Evidence bytes for the frame, only produced when it becomes an incident's representative
+    private byte[] evidenceImage(PooledFrame imageData, Mat encoded, Mat frame, FaceDetectionResult result) {
+        try {
+            if (!annotateEvidence && "upload".equalsIgnoreCase(evidenceSource)) {
+                // The upload is already a quality-70 JPEG of this exact frame; store it without re-encoding
+                return imageData.toByteArray();
+            }
 
+            Mat decoded = frame != null ? frame : Imgcodecs.imdecode(encoded, Imgcodecs.IMREAD_COLOR);
             try {
-                Imgcodecs.imwrite(path, frame, compressionParams);
-                log.info("Saved evidence frame to: {}", path);
-                return path;
+                if (annotateEvidence) {
+                    if (decoded == frame) {
+                        decoded = frame.clone();
+                    }
+                    annotate(decoded, result);
+                }
+                return evidenceWriter.encode(decoded);
             } finally {
-                compressionParams.release();
+                if (decoded != frame) decoded.release();
             }
         } catch (Exception e) {
-            log.error("Error saving evidence frame for session: {}", sessionId, e);
+            log.error("Error preparing evidence frame", e);
             return null;
         }
     }
 
-    private void logSuspiciousActivity(String sessionId, String examId, String description, String evidencePath) {
-        try {
-            SuspiciousActivity activity = new SuspiciousActivity();
-            activity.setSessionId(sessionId);
-            activity.setExamId(examId);
-            activity.setDescription(description);
-            activity.setTimestamp(LocalDateTime.now());
-            activity.setEvidencePath(evidencePath);
-
-            suspiciousActivityRepository.save(activity);
-            log.info("Suspicious activity logged: {} for session: {}", description, sessionId);
-        } catch (Exception e) {
-            log.error("Error logging suspicious activity for session: {}", sessionId, e);
+    // Frames of one incident are ranked by how far head pose and gaze exceed their thresholds
+    private double severity(FaceDetectionResult result) {
+        if (result.getHeadPose() == null || result.getEyeGaze() == null) {
+            return 0;
         }
+        return MediaPipeFaceDetectionService.poseSeverity(
+                result.getHeadPose().getYaw(), result.getHeadPose().getPitch(),
+                result.getEyeGaze().getLeftEyeHorizontalGaze(), result.getEyeGaze().getRightEyeHorizontalGaze());
+    }
+
+    private void annotate(Mat frame, FaceDetectionResult result) {
+        String stamp = LocalDateTime.now().format(ANNOTATION_TIME) + "  " + result.getDescription();
+        Imgproc.rectangle(frame, new Point(0, 0), new Point(frame.cols(), 24), new Scalar(0, 0, 0), -1);
+        Imgproc.putText(frame, stamp, new Point(6, 17), Imgproc.FONT_HERSHEY_SIMPLEX, 0.45, new Scalar(0, 0, 255), 1);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,198 @@
+package com.lms.cheating_detection.service;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.dnn.Dnn;
+import org.opencv.dnn.Net;
+import org.opencv.imgproc.Imgproc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.IntStream;
+
+// CPU face detector on the OpenCV dnn module: the ResNet-10 SSD face model (300x300 input).
+// One forward pass replaces the whole Haar scale pyramid, and several frames can share one
+// pass through blobFromImages. Net instances are not thread-safe, so they are pooled like
+// the cascades. Model files are read from mediapipe.model.directory through the ModelRegistry.
+@Component
+@DependsOn("openCVConfig")
+public class DnnFaceDetector implements FaceDetector {
+
+    public static final String NAME = "dnn";
+
+    private static final Logger log = LoggerFactory.getLogger(DnnFaceDetector.class);
+    private static final Size INPUT_SIZE = new Size(300, 300);
+    private static final Scalar MEAN = new Scalar(104.0, 177.0, 123.0);
+
+    @Value("${mediapipe.model.directory:models}")
+    private String modelDirectory;
+
+    @Value("${detection.dnn.config:deploy.prototxt}")
+    private String configFile;
+
+    @Value("${detection.dnn.weights:res10_300x300_ssd_iter_140000.caffemodel}")
+    private String weightsFile;
+
+    @Value("${mediapipe.detection.confidence:0.7}")
+    private double confidenceThreshold;
+
+    // 0 = one network per available core
+    @Value("${detection.dnn.instances:0}")
+    private int configuredInstances;
+
+    private final ModelRegistry modelRegistry;
+    private BlockingQueue<Net> idleNets;
+    private boolean available;
+
+    public DnnFaceDetector(ModelRegistry modelRegistry) {
+        this.modelRegistry = modelRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        Path config = Paths.get(modelDirectory, configFile);
+        Path weights = Paths.get(modelDirectory, weightsFile);
+        if (!Files.exists(config) || !Files.exists(weights)) {
+            log.info("DNN face model not found at {} / {}; dnn backend unavailable", config.toAbsolutePath(), weights.toAbsolutePath());
+            return;
+        }
+
+        int instances = configuredInstances > 0 ? configuredInstances : Runtime.getRuntime().availableProcessors();
+        idleNets = new ArrayBlockingQueue<>(instances);
+
+        // The files are read once; every instance is parsed from the in-memory copy, in parallel
+        long start = System.nanoTime();
+        MatOfByte configBytes = modelRegistry.readModel(config);
+        MatOfByte weightBytes = modelRegistry.readModel(weights);
+        try {
+            Net[] nets = new Net[instances];
+            IntStream.range(0, instances).parallel().forEach(i -> {
+                Net net = Dnn.readNetFromCaffe(configBytes, weightBytes);
+                net.setPreferableBackend(Dnn.DNN_BACKEND_OPENCV);
+                net.setPreferableTarget(Dnn.DNN_TARGET_CPU);
+                nets[i] = net;
+            });
+            idleNets.addAll(Arrays.asList(nets));
+        } finally {
+            configBytes.release();
+            weightBytes.release();
+        }
+        modelRegistry.recordLoad("dnnFaceModel", start);
+        available = true;
+        log.info("DNN face detector loaded with {} network instances in {} ms",
+                instances, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return available;
+    }
+
+    @Override
+    public Rect[] detectFaces(Mat frame) {
+        return detectFaces(List.of(frame)).get(0);
+    }
+
+    @Override
+    public List<Rect[]> detectFaces(List<Mat> frames) {
+        List<Mat> inputs = toBgr(frames);
+        Net net = takeNet();
+        Mat blob = null;
+        Mat detections = null;
+        try {
+            blob = Dnn.blobFromImages(inputs, 1.0, INPUT_SIZE, MEAN, false, false);
+            net.setInput(blob);
+            detections = net.forward();
+            return parseDetections(detections, frames);
+        } finally {
+            idleNets.offer(net);
+            if (blob != null) blob.release();
+            if (detections != null) detections.release();
+            for (int i = 0; i < inputs.size(); i++) {
+                if (inputs.get(i) != frames.get(i)) inputs.get(i).release();
+            }
+        }
+    }
+
+    // The network expects 3 channels; gray search images are expanded
+    private List<Mat> toBgr(List<Mat> frames) {
+        List<Mat> inputs = new ArrayList<>(frames.size());
+        for (Mat frame : frames) {
+            if (frame.channels() == 1) {
+                Mat bgr = new Mat();
+                Imgproc.cvtColor(frame, bgr, Imgproc.COLOR_GRAY2BGR);
+                inputs.add(bgr);
+            } else {
+                inputs.add(frame);
+            }
+        }
+        return inputs;
+    }
+
+    // Output is 1x1xNx7: [imageId, classId, confidence, left, top, right, bottom], coordinates relative
+    private List<Rect[]> parseDetections(Mat detections, List<Mat> frames) {
+        List<List<Rect>> perFrame = new ArrayList<>(frames.size());
+        for (int i = 0; i < frames.size(); i++) {
+            perFrame.add(new ArrayList<>());
+        }
+
+        Mat rows = detections.reshape(1, (int) (detections.total() / 7));
+        float[] row = new float[7];
+        for (int i = 0; i < rows.rows(); i++) {
+            rows.get(i, 0, row);
+            int imageId = (int) row[0];
+            if (row[2] < confidenceThreshold || imageId < 0 || imageId >= frames.size()) {
+                continue;
+            }
+
+            Mat frame = frames.get(imageId);
+            int left = clamp(Math.round(row[3] * frame.cols()), frame.cols() - 1);
+            int top = clamp(Math.round(row[4] * frame.rows()), frame.rows() - 1);
+            int right = clamp(Math.round(row[5] * frame.cols()), frame.cols());
+            int bottom = clamp(Math.round(row[6] * frame.rows()), frame.rows());
+            if (right > left && bottom > top) {
+                perFrame.get(imageId).add(new Rect(left, top, right - left, bottom - top));
+            }
+        }
+        rows.release();
+
+        List<Rect[]> results = new ArrayList<>(frames.size());
+        for (List<Rect> faces : perFrame) {
+            results.add(faces.toArray(new Rect[0]));
+        }
+        return results;
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max));
+    }
+
+    private Net takeNet() {
+        try {
+            return idleNets.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a DNN face detector", e);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.lms.cheating_detection.service;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfInt;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Writes evidence images off the analysis threads. Callers hand over an encoded JPEG and get the
+// target path back immediately; a small I/O pool drains a bounded queue. When the queue is full the
+// new image is dropped (and counted) instead of blocking detection, so a burst of alerts during a
+// network blip cannot stall analysis on disk latency. Each worker writes up to fsync-batch-size files
+// before forcing them to disk together with one directory sync.
+@Component
+public class EvidenceWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(EvidenceWriter.class);
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss_SSS");
+
+    @Value("${evidence.folder:evidence}")
+    private String evidenceFolder;
+
+    @Value("${evidence.writer.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Value("${evidence.writer.threads:2}")
+    private int threads;
+
+    @Value("${evidence.writer.fsync:true}")
+    private boolean fsync;
+
+    @Value("${evidence.writer.fsync-batch-size:16}")
+    private int fsyncBatchSize;
+
+    @Value("${evidence.jpeg-quality:70}")
+    private int jpegQuality;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final DetectionMetrics metrics;
+
+    private Path directory;
+    private BlockingQueue<PendingWrite> queue;
+    private ExecutorService workers;
+    private volatile boolean accepting;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder writeBatches = new LongAdder();
+    private final LongAdder syncBatches = new LongAdder();
+    private final LongAdder totalWriteNanos = new LongAdder();
+
+    public EvidenceWriter(DetectionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @PostConstruct
+    public void init() {
+        // Created once here instead of on every save
+        directory = Paths.get(evidenceFolder);
+        try {
+            Files.createDirectories(directory);
+            log.info("Evidence directory ready at: {}", directory.toAbsolutePath());
+        } catch (IOException e) {
+            log.warn("Failed to create evidence directory at: {}", directory.toAbsolutePath(), e);
+        }
+
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger threadIndex = new AtomicInteger();
+        // The workers only block on disk, so in virtual-thread mode they need no platform thread of their own
+        workers = Executors.newFixedThreadPool(threads, virtualThreads
+                ? Thread.ofVirtual().name("evidence-writer-", 1).factory()
+                : runnable -> {
+                    Thread thread = new Thread(runnable, "evidence-writer-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        accepting = true;
+        for (int i = 0; i < threads; i++) {
+            workers.submit(this::workerLoop);
+        }
+        log.info("Evidence writer started with {} threads, queue capacity {}, fsync {}", threads, queueCapacity, fsync);
+    }
+
+    // Stops accepting new images and lets the workers drain what is already queued
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        accepting = false;
+        workers.shutdown();
+        if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Evidence writer stopped with {} images still queued", queue.size());
+            workers.shutdownNow();
+        }
+    }
+
+    // Encodes the frame on the calling thread and queues the write; returns the evidence path or null if dropped
+    public String write(Mat frame, String sessionId, String type) {
+        byte[] jpeg = encode(frame);
+        if (jpeg == null) {
+            log.error("Failed to encode evidence frame for session: {}", sessionId);
+            return null;
+        }
+        return write(jpeg, sessionId, type);
+    }
+
+    // Evidence-quality JPEG of the frame, or null if encoding failed
+    public byte[] encode(Mat frame) {
+        MatOfByte encoded = new MatOfByte();
+        MatOfInt compressionParams = new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, jpegQuality);
+        try {
+            return Imgcodecs.imencode(".jpg", frame, encoded, compressionParams) ? encoded.toArray() : null;
+        } finally {
+            encoded.release();
+            compressionParams.release();
+        }
+    }
+
+    // Queues an already encoded JPEG; returns the evidence path or null if dropped
+    public String write(byte[] jpeg, String sessionId, String type) {
+        String filename = String.format("evidence_%s_%s_%s.jpg", sessionId, type, LocalDateTime.now().format(TIMESTAMP));
+        Path path = directory.resolve(filename);
+
+        submitted.increment();
+        if (!accepting || !queue.offer(new PendingWrite(path, jpeg))) {
+            dropped.increment();
+            log.warn("Evidence queue full, dropped {} frame for session: {}", type, sessionId);
+            return null;
+        }
+        return evidenceFolder + File.separator + filename;
+    }
+
+    private void workerLoop() {
+        List<PendingWrite> batch = new ArrayList<>(fsyncBatchSize);
+        while (true) {
+            PendingWrite first;
+            try {
+                first = accepting ? queue.poll(500, TimeUnit.MILLISECONDS) : queue.poll();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null) {
+                if (!accepting) {
+                    return;
+                }
+                continue;
+            }
+
+            batch.add(first);
+            queue.drainTo(batch, fsyncBatchSize - 1);
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<PendingWrite> batch) {
+        long start = System.nanoTime();
+        List<FileChannel> channels = new ArrayList<>(batch.size());
+        try {
+            for (PendingWrite write : batch) {
+                try {
+                    FileChannel channel = FileChannel.open(write.path(),
+                            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                    channels.add(channel);
+                    ByteBuffer buffer = ByteBuffer.wrap(write.jpeg());
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    written.increment();
+                    bytesWritten.add(write.jpeg().length);
+                    log.debug("Saved evidence frame to: {}", write.path());
+                } catch (IOException e) {
+                    failed.increment();
+                    log.error("Error saving evidence frame to: {}", write.path(), e);
+                }
+            }
+
+            if (fsync) {
+                for (FileChannel channel : channels) {
+                    try {
+                        channel.force(false);
+                    } catch (IOException e) {
+                        log.warn("Failed to sync evidence file", e);
+                    }
+                }
+                syncDirectory();
+                syncBatches.increment();
+            }
+        } finally {
+            for (FileChannel channel : channels) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.warn("Failed to close evidence file", e);
+                }
+            }
+            writeBatches.increment();
+            totalWriteNanos.add(System.nanoTime() - start);
+            metrics.record(DetectionMetrics.Stage.EVIDENCE_WRITE, start);
+        }
+    }
+
+    // Makes the new directory entries durable; not supported on every platform
+    private void syncDirectory() {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            log.trace("Directory sync not supported for {}", directory, e);
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public Map<String, Object> getStats() {
+        long batches = writeBatches.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", queue.size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("submitted", submitted.sum());
+        stats.put("written", written.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("failed", failed.sum());
+        stats.put("bytesWritten", bytesWritten.sum());
+        stats.put("writeBatches", batches);
+        stats.put("syncBatches", syncBatches.sum());
+        stats.put("avgBatchWriteMicros", batches == 0 ? 0 : totalWriteNanos.sum() / batches / 1_000);
+        return stats;
+    }
+
+    private record PendingWrite(Path path, byte[] jpeg) {
+    }
+}
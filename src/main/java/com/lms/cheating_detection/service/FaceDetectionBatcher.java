@@ -0,0 +1,81 @@
+package com.lms.cheating_detection.service;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+// Micro-batching front of the full-frame face detector. Frames from many sessions are gathered into
+// batches of up to detection.batch.max-size or detection.batch.max-wait-ms and handed to the
+// selected FaceDetector in one call, which the DNN backend runs as a single forward pass.
+// Disabled by default; only the DNN path uses it, since Haar processes a batch frame by frame.
+@Component
+public class FaceDetectionBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(FaceDetectionBatcher.class);
+
+    @Value("${detection.batch.enabled:false}")
+    private boolean enabled;
+
+    @Value("${detection.batch.max-size:8}")
+    private int maxBatchSize;
+
+    @Value("${detection.batch.max-wait-ms:10}")
+    private long maxWaitMs;
+
+    // Batches run in parallel on this many threads; 0 = one per core
+    @Value("${detection.batch.concurrency:0}")
+    private int concurrency;
+
+    // Longest wait for a batch to start; the caller then fails instead of hanging on a stuck batcher
+    @Value("${detection.batch.timeout-ms:1000}")
+    private long timeoutMs;
+
+    private MicroBatchScheduler<Mat, Rect[]> scheduler;
+
+    // Called once the detection backend is selected; no-op when batching is disabled
+    public void start(FaceDetector detector) {
+        if (!enabled || scheduler != null) {
+            return;
+        }
+        int threads = concurrency > 0 ? concurrency : Runtime.getRuntime().availableProcessors();
+        scheduler = new MicroBatchScheduler<>("face-detection", maxBatchSize, maxWaitMs, threads, detector::detectFaces);
+        log.info("Face detection batching enabled for {} backend: max size {}, max wait {} ms, {} threads",
+                detector.getName(), maxBatchSize, maxWaitMs, threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return scheduler != null;
+    }
+
+    // Blocks until the batch containing this frame has run, or fails after detection.batch.timeout-ms
+    // if that batch has not started; the frame is never read after this returns or throws
+    public Rect[] detect(Mat frame) {
+        try {
+            return scheduler.call(frame, timeoutMs);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Batched face detection timed out", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batched face detection failed", e.getCause());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        return scheduler != null ? scheduler.getStats() : Collections.singletonMap("enabled", false);
+    }
+}
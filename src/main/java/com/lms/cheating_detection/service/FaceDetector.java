@@ -0,0 +1,30 @@
+package com.lms.cheating_detection.service;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Face detection backend. Implementations are Spring beans selected by detection.backend;
+// they must be safe to call from many threads at once.
+public interface FaceDetector {
+
+    // Value of detection.backend that selects this detector
+    String getName();
+
+    // False when the backend cannot run here (e.g. model files missing)
+    boolean isAvailable();
+
+    // Face rects in frame coordinates for a BGR frame
+    Rect[] detectFaces(Mat frame);
+
+    // One result per frame, in order. Backends with real batched inference override this.
+    default List<Rect[]> detectFaces(List<Mat> frames) {
+        List<Rect[]> results = new ArrayList<>(frames.size());
+        for (Mat frame : frames) {
+            results.add(detectFaces(frame));
+        }
+        return results;
+    }
+}
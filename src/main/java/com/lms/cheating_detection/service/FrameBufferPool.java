@@ -0,0 +1,208 @@
+package com.lms.cheating_detection.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Reusable direct buffers for incoming JPEG frames.
+// Request bodies are streamed straight into native memory through a small per-buffer scratch
+// array, so steady-state ingest allocates nothing on the Java heap. At most pool-size direct
+// buffers are ever created and every one of them is kept: a buffer that turns out too small is
+// replaced by a larger one in the same slot. pool-size should cover the frames that can be
+// outstanding at once (in flight + queued per session). Beyond that, acquire waits up to
+// acquire-wait-ms for a buffer to come back and then falls back to a plain heap buffer that is
+// left to the GC, so native memory stays bounded; heapFallbacks in the stats shows when the pool
+// is undersized.
+// Opt-in (frame.buffer.pool-enabled) until FrameDecodeBenchmark -prof gc and a LoadGenerator run
+// show lower allocation and GC pause numbers on the target hardware; when disabled every frame is
+// read into an exactly sized heap array, like MultipartFile.getBytes() did.
+@Component
+public class FrameBufferPool {
+
+    private static final Logger log = LoggerFactory.getLogger(FrameBufferPool.class);
+    private static final int SCRATCH_SIZE = 16 * 1024;
+
+    private final boolean enabled;
+    private final BlockingQueue<FrameBuffer> idleBuffers;
+    private final int maxBuffers;
+    private final int initialBytes;
+    private final int maxFrameBytes;
+    private final long acquireWaitMs;
+    private final AtomicInteger directBuffers = new AtomicInteger();
+
+    private final LongAdder leases = new LongAdder();
+    private final LongAdder allocations = new LongAdder();
+    private final LongAdder heapFallbacks = new LongAdder();
+
+    public FrameBufferPool(@Value("${frame.buffer.pool-enabled:false}") boolean enabled,
+                           @Value("${frame.buffer.pool-size:0}") int poolSize,
+                           @Value("${frame.buffer.initial-bytes:262144}") int initialBytes,
+                           @Value("${frame.buffer.max-bytes:10485760}") int maxFrameBytes,
+                           @Value("${frame.buffer.acquire-wait-ms:5}") long acquireWaitMs) {
+        this.enabled = enabled;
+        this.maxBuffers = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors() * 4;
+        this.idleBuffers = new ArrayBlockingQueue<>(maxBuffers);
+        this.initialBytes = initialBytes;
+        this.maxFrameBytes = maxFrameBytes;
+        this.acquireWaitMs = acquireWaitMs;
+        if (enabled) {
+            log.info("Frame buffer pool keeps up to {} direct buffers of {} KB", maxBuffers, initialBytes / 1024);
+        }
+    }
+
+    // Streams an encoded frame into a pooled buffer; sizeHint may be -1 when unknown
+    public PooledFrame read(InputStream in, long sizeHint) throws IOException {
+        if (sizeHint > maxFrameBytes) {
+            throw new IOException("Frame of " + sizeHint + " bytes exceeds limit of " + maxFrameBytes);
+        }
+        if (!enabled) {
+            leases.increment();
+            byte[] bytes = in.readNBytes(maxFrameBytes + 1);
+            if (bytes.length > maxFrameBytes) {
+                throw new IOException("Frame exceeds limit of " + maxFrameBytes + " bytes");
+            }
+            return new PooledFrame(this, new FrameBuffer(ByteBuffer.wrap(bytes), null, false), bytes.length);
+        }
+
+        FrameBuffer frameBuffer = acquire((int) Math.max(sizeHint, 0));
+        try {
+            byte[] scratch = frameBuffer.scratch;
+            int n;
+            while ((n = in.read(scratch, 0, scratch.length)) != -1) {
+                if (frameBuffer.buffer.remaining() < n) {
+                    frameBuffer = grow(frameBuffer, frameBuffer.buffer.position() + n);
+                }
+                frameBuffer.buffer.put(scratch, 0, n);
+            }
+            return new PooledFrame(this, frameBuffer, frameBuffer.buffer.position());
+        } catch (IOException | RuntimeException e) {
+            release(frameBuffer);
+            throw e;
+        }
+    }
+
+    // Copies an already received payload (e.g. a WebSocket message) into a pooled buffer
+    public PooledFrame copyOf(ByteBuffer source) throws IOException {
+        int length = source.remaining();
+        if (length > maxFrameBytes) {
+            throw new IOException("Frame of " + length + " bytes exceeds limit of " + maxFrameBytes);
+        }
+        if (!enabled) {
+            leases.increment();
+            return new PooledFrame(this, new FrameBuffer(ByteBuffer.allocate(length).put(source), null, false), length);
+        }
+
+        FrameBuffer frameBuffer = acquire(length);
+        frameBuffer.buffer.put(source);
+        return new PooledFrame(this, frameBuffer, length);
+    }
+
+    private FrameBuffer acquire(int minCapacity) throws IOException {
+        leases.increment();
+        FrameBuffer frameBuffer = idleBuffers.poll();
+        if (frameBuffer == null) {
+            frameBuffer = newBufferOrWait(minCapacity);
+        }
+        if (frameBuffer.buffer.capacity() < minCapacity) {
+            frameBuffer = replace(frameBuffer, minCapacity);
+        }
+        frameBuffer.buffer.clear();
+        return frameBuffer;
+    }
+
+    // Creates a direct buffer while below the cap; otherwise waits briefly for one to be released
+    // and, failing that, hands out an unpooled heap buffer
+    private FrameBuffer newBufferOrWait(int minCapacity) throws IOException {
+        int created = directBuffers.get();
+        while (created < maxBuffers) {
+            if (directBuffers.compareAndSet(created, created + 1)) {
+                return allocate(Math.max(initialBytes, minCapacity), true);
+            }
+            created = directBuffers.get();
+        }
+
+        try {
+            FrameBuffer frameBuffer = idleBuffers.poll(acquireWaitMs, TimeUnit.MILLISECONDS);
+            if (frameBuffer != null) {
+                return frameBuffer;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a frame buffer", e);
+        }
+        // Exactly the frame size when known, so overflow frames cost no more heap than the JPEG itself
+        heapFallbacks.increment();
+        return new FrameBuffer(ByteBuffer.allocate(minCapacity > 0 ? minCapacity : initialBytes), new byte[SCRATCH_SIZE], false);
+    }
+
+    private FrameBuffer grow(FrameBuffer current, int minCapacity) throws IOException {
+        if (minCapacity > maxFrameBytes) {
+            throw new IOException("Frame exceeds limit of " + maxFrameBytes + " bytes");
+        }
+
+        FrameBuffer larger = replace(current, (int) Math.min(maxFrameBytes, Math.max(minCapacity, current.buffer.capacity() * 2L)));
+        current.buffer.flip();
+        larger.buffer.put(current.buffer);
+        return larger;
+    }
+
+    // A larger buffer taking over the slot of current, which is dropped
+    private FrameBuffer replace(FrameBuffer current, int capacity) {
+        if (!current.pooled) {
+            return new FrameBuffer(ByteBuffer.allocate(capacity), current.scratch, false);
+        }
+        return allocate(capacity, true);
+    }
+
+    private FrameBuffer allocate(int capacity, boolean pooled) {
+        allocations.increment();
+        return new FrameBuffer(ByteBuffer.allocateDirect(capacity), new byte[SCRATCH_SIZE], pooled);
+    }
+
+    void release(FrameBuffer frameBuffer) {
+        // Heap fallbacks are left to the GC; pooled buffers always fit, the queue holds maxBuffers
+        if (frameBuffer.pooled) {
+            idleBuffers.offer(frameBuffer);
+        }
+    }
+
+    public long getHeapFallbacks() {
+        return heapFallbacks.sum();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("maxBuffers", maxBuffers);
+        stats.put("directBuffers", directBuffers.get());
+        stats.put("idleBuffers", idleBuffers.size());
+        stats.put("leases", leases.sum());
+        stats.put("allocations", allocations.sum());
+        stats.put("heapFallbacks", heapFallbacks.sum());
+        return stats;
+    }
+
+    static final class FrameBuffer {
+        final ByteBuffer buffer;
+        final byte[] scratch;
+        final boolean pooled;
+
+        private FrameBuffer(ByteBuffer buffer, byte[] scratch, boolean pooled) {
+            this.buffer = buffer;
+            this.scratch = scratch;
+            this.pooled = pooled;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.lms.cheating_detection.service;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfRect;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.springframework.stereotype.Component;
+
+// Multi-scale Haar cascade face search over the whole frame, with the parameters of the accurate mode
+@Component
+public class HaarFaceDetector implements FaceDetector {
+
+    public static final String NAME = "haar";
+
+    private final CascadeDetectorPool detectorPool;
+
+    public HaarFaceDetector(CascadeDetectorPool detectorPool) {
+        this.detectorPool = detectorPool;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public Rect[] detectFaces(Mat frame) {
+        Mat gray = new Mat();
+        MatOfRect faces = new MatOfRect();
+        try (CascadeDetectorPool.Lease detector = detectorPool.acquire()) {
+            if (frame.channels() > 1) {
+                Imgproc.cvtColor(frame, gray, Imgproc.COLOR_BGR2GRAY);
+            } else {
+                frame.copyTo(gray);
+            }
+            Imgproc.equalizeHist(gray, gray);
+
+            detector.faceCascade().detectMultiScale(gray, faces, 1.1, 3, 0, new Size(30, 30), new Size());
+            return faces.toArray();
+        } finally {
+            gray.release();
+            faces.release();
+        }
+    }
+}
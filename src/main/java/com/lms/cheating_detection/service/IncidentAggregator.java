@@ -0,0 +1,215 @@
+package com.lms.cheating_detection.service;
+
+import com.lms.cheating_detection.model.SuspiciousActivity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Merges consecutive suspicious frames of one (sessionId, evidenceType) into a single incident.
+// While an incident is open, further hits only bump its end time and frame count; the evidence
+// image is kept in memory and replaced only by a more severe frame. The incident is persisted
+// once, with one evidence file and one row, when no hit arrives for incident.gap-ms, when it
+// exceeds incident.max-duration-ms, or when monitoring of the session stops.
+@Component
+public class IncidentAggregator {
+
+    private static final Logger log = LoggerFactory.getLogger(IncidentAggregator.class);
+
+    private final EvidenceWriter evidenceWriter;
+    private final SuspiciousActivityWriter suspiciousActivityWriter;
+
+    @Value("${incident.gap-ms:5000}")
+    private long gapMs;
+
+    @Value("${incident.max-duration-ms:60000}")
+    private long maxDurationMs;
+
+    @Value("${incident.sweep-interval-ms:1000}")
+    private long sweepIntervalMs;
+
+    private final Map<IncidentKey, Incident> openIncidents = new ConcurrentHashMap<>();
+    private ScheduledExecutorService sweeper;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder mergedFrames = new LongAdder();
+    private final LongAdder closedIncidents = new LongAdder();
+
+    public IncidentAggregator(EvidenceWriter evidenceWriter, SuspiciousActivityWriter suspiciousActivityWriter) {
+        this.evidenceWriter = evidenceWriter;
+        this.suspiciousActivityWriter = suspiciousActivityWriter;
+    }
+
+    @PostConstruct
+    public void init() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "incident-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::closeExpired, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Incident aggregation started: gap {} ms, max duration {} ms", gapMs, maxDurationMs);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        sweeper.shutdown();
+        sweeper.awaitTermination(5, TimeUnit.SECONDS);
+        openIncidents.keySet().forEach(this::close);
+    }
+
+    // Records one suspicious frame. evidence is only called when the frame becomes the incident's
+    // representative, so merged frames cost no encode or copy. severity orders frames of one incident.
+    // The evidence JPEG is built before entering compute(): the map bin stays locked for the
+    // duration of the remapping function, and the sweeper and closeSession must not wait for an
+    // imdecode/imencode.
+    public void record(String sessionId, String examId, String evidenceType, String description,
+                       double severity, Supplier<byte[]> evidence) {
+        hits.increment();
+        IncidentKey incidentKey = new IncidentKey(sessionId, evidenceType);
+        byte[] jpeg = null;
+        boolean built = false;
+
+        while (true) {
+            Incident current = openIncidents.get(incidentKey);
+            if (!built && (current == null || severity > current.severity)) {
+                jpeg = evidence.get();
+                built = true;
+            }
+
+            long now = System.currentTimeMillis();
+            byte[] candidate = jpeg;
+            boolean haveEvidence = built;
+            Incident updated = openIncidents.compute(incidentKey, (key, incident) -> {
+                if (incident == null) {
+                    // Closed since the lookup: come back with evidence for the new incident
+                    if (!haveEvidence) {
+                        return null;
+                    }
+                    log.info("Incident opened: {} for session: {}", evidenceType, sessionId);
+                    return new Incident(examId, description, severity, candidate, now);
+                }
+                incident.frameCount++;
+                incident.lastSeenMillis = now;
+                incident.endTimestamp = LocalDateTime.now();
+                if (severity > incident.severity && candidate != null) {
+                    incident.severity = severity;
+                    incident.description = description;
+                    incident.evidence = candidate;
+                }
+                mergedFrames.increment();
+                return incident;
+            });
+            if (updated != null) {
+                return;
+            }
+        }
+    }
+
+    // Persists every open incident of the session
+    public void closeSession(String sessionId) {
+        openIncidents.keySet().stream()
+                .filter(key -> key.sessionId().equals(sessionId))
+                .forEach(this::close);
+    }
+
+    // The expiry check runs inside computeIfPresent: lastSeenMillis is written by detection threads
+    // under the same bin lock, so the sweeper never closes an incident on a stale value
+    private void closeExpired() {
+        long now = System.currentTimeMillis();
+        for (IncidentKey key : openIncidents.keySet()) {
+            Incident[] expired = new Incident[1];
+            openIncidents.computeIfPresent(key, (k, incident) -> {
+                if (now - incident.lastSeenMillis >= gapMs || now - incident.startedMillis >= maxDurationMs) {
+                    expired[0] = incident;
+                    return null;
+                }
+                return incident;
+            });
+            if (expired[0] != null) {
+                try {
+                    persist(key, expired[0]);
+                } catch (Exception e) {
+                    log.error("Error closing expired incident {} for session: {}", key.evidenceType(), key.sessionId(), e);
+                }
+            }
+        }
+    }
+
+    private void close(IncidentKey key) {
+        Incident incident = openIncidents.remove(key);
+        if (incident != null) {
+            persist(key, incident);
+        }
+    }
+
+    // incident is already out of the map, so no detection thread writes it any more
+    private void persist(IncidentKey key, Incident incident) {
+        String evidencePath = incident.evidence != null
+                ? evidenceWriter.write(incident.evidence, key.sessionId(), key.evidenceType())
+                : null;
+
+        SuspiciousActivity activity = new SuspiciousActivity();
+        activity.setSessionId(key.sessionId());
+        activity.setExamId(incident.examId);
+        activity.setDescription(incident.description);
+        activity.setTimestamp(incident.startTimestamp);
+        activity.setEndTimestamp(incident.endTimestamp);
+        activity.setFrameCount(incident.frameCount);
+        activity.setEvidencePath(evidencePath);
+        suspiciousActivityWriter.submit(activity);
+
+        closedIncidents.increment();
+        log.info("Incident closed: {} for session: {} ({} frames)", key.evidenceType(), key.sessionId(), incident.frameCount);
+    }
+
+    public int getOpenIncidentCount() {
+        return openIncidents.size();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("openIncidents", openIncidents.size());
+        stats.put("suspiciousFrames", hits.sum());
+        stats.put("mergedFrames", mergedFrames.sum());
+        stats.put("closedIncidents", closedIncidents.sum());
+        return stats;
+    }
+
+    private record IncidentKey(String sessionId, String evidenceType) {
+    }
+
+    private static final class Incident {
+        private final String examId;
+        private final LocalDateTime startTimestamp = LocalDateTime.now();
+        private final long startedMillis;
+        private LocalDateTime endTimestamp = startTimestamp;
+        private long lastSeenMillis;
+        private int frameCount = 1;
+        private String description;
+        // Also read outside compute() by record(), to decide whether to build evidence at all
+        private volatile double severity;
+        private byte[] evidence;
+
+        private Incident(String examId, String description, double severity, byte[] evidence, long now) {
+            this.examId = examId;
+            this.description = description;
+            this.severity = severity;
+            this.evidence = evidence;
+            this.startedMillis = now;
+            this.lastSeenMillis = now;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.lms.cheating_detection.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Fork-join pool for splitting the work of one frame across cores (detection.parallel.enabled).
+// It lowers the latency of a single large frame, not throughput: when the node is already busy
+// every core has a frame of its own and forking only adds hand-off cost. fork() therefore
+// declines (returns null, the caller runs the work itself) as soon as no worker is idle.
+@Component
+public class IntraFrameExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(IntraFrameExecutor.class);
+
+    @Value("${detection.parallel.enabled:false}")
+    private boolean enabled;
+
+    // 0 = one worker per available core
+    @Value("${detection.parallel.threads:0}")
+    private int configuredThreads;
+
+    private ForkJoinPool pool;
+
+    private final LongAdder forked = new LongAdder();
+    private final LongAdder saturated = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        int threads = configuredThreads > 0 ? configuredThreads : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(threads, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("intra-frame-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        log.info("Intra-frame parallelism enabled with {} fork-join workers", threads);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (pool != null) {
+            pool.shutdown();
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return pool != null;
+    }
+
+    // Starts the task on an idle worker, or returns null when disabled or saturated
+    public <T> ForkJoinTask<T> fork(Callable<T> task) {
+        if (pool == null) {
+            return null;
+        }
+        if (pool.hasQueuedSubmissions() || pool.getActiveThreadCount() >= pool.getParallelism()) {
+            saturated.increment();
+            return null;
+        }
+        forked.increment();
+        return pool.submit(task);
+    }
+
+    // Counts a sequential fallback decided by the caller (e.g. no spare detector slot)
+    void recordSaturated() {
+        saturated.increment();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", pool != null);
+        stats.put("threads", pool != null ? pool.getParallelism() : 0);
+        stats.put("active", pool != null ? pool.getActiveThreadCount() : 0);
+        stats.put("forkedTasks", forked.sum());
+        stats.put("sequentialFallbacks", saturated.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,103 @@
+package com.lms.cheating_detection.service;
+
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Arena for the native memory of one analysis step. Every per-frame Mat created or returned by
+// OpenCV is registered with track() and released when the scope closes, on the happy path and on
+// exceptions alike, instead of waiting for the finalizer (which never runs while the Java heap looks idle).
+// Releasing a submat only drops its reference to the parent's buffer, so ROIs can be tracked too.
+// Long-lived scratch buffers belong to the pool slot's AnalysisWorkspace instead.
+//
+// With accounting on (opencv.native-accounting.enabled), open scopes are registered globally and
+// outstandingBytes() sums the buffers they hold, which MetricsConfig exports as a gauge; a value
+// that keeps growing while load is flat points at Mats held outside any scope.
+public final class MatScope implements AutoCloseable {
+
+    private static final Set<MatScope> OPEN_SCOPES = ConcurrentHashMap.newKeySet();
+    private static volatile boolean accounting;
+
+    private final List<Mat> mats = new ArrayList<>(16);
+    private final boolean registered;
+    private boolean closed;
+
+    public MatScope() {
+        registered = accounting;
+        if (registered) {
+            OPEN_SCOPES.add(this);
+        }
+    }
+
+    public static void setAccounting(boolean enabled) {
+        accounting = enabled;
+    }
+
+    public static boolean isAccounting() {
+        return accounting;
+    }
+
+    public synchronized <T extends Mat> T track(T mat) {
+        if (closed) {
+            throw new IllegalStateException("MatScope is already closed");
+        }
+        mats.add(mat);
+        return mat;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // Reverse order: ROIs go before the frames they point into
+        for (int i = mats.size() - 1; i >= 0; i--) {
+            mats.get(i).release();
+        }
+        mats.clear();
+        if (registered) {
+            OPEN_SCOPES.remove(this);
+        }
+    }
+
+    // Approximate while the owning thread is still filling its Mats
+    private synchronized long heldBytes() {
+        long bytes = 0;
+        for (Mat mat : mats) {
+            // A submatrix shares the buffer of its parent, which is counted on its own
+            if (!mat.isSubmatrix()) {
+                bytes += mat.total() * mat.elemSize();
+            }
+        }
+        return bytes;
+    }
+
+    private synchronized int heldMats() {
+        return mats.size();
+    }
+
+    // Native bytes held by all open scopes; 0 while accounting is off
+    public static long outstandingBytes() {
+        long bytes = 0;
+        for (MatScope scope : OPEN_SCOPES) {
+            bytes += scope.heldBytes();
+        }
+        return bytes;
+    }
+
+    public static int outstandingMats() {
+        int count = 0;
+        for (MatScope scope : OPEN_SCOPES) {
+            count += scope.heldMats();
+        }
+        return count;
+    }
+
+    public static int openScopes() {
+        return OPEN_SCOPES.size();
+    }
+}
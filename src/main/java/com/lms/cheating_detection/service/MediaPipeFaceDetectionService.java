@@ -1,9 +1,11 @@
 package com.lms.cheating_detection.service;
 
 import com.lms.cheating_detection.model.FaceDetectionResult;
+import com.lms.cheating_detection.model.FaceTrackingState;
 import com.lms.cheating_detection.model.EyeGazeResult;
 import com.lms.cheating_detection.model.HeadPoseResult;
 import org.opencv.core.*;
+import org.opencv.imgcodecs.Imgcodecs;
 import org.opencv.imgproc.Imgproc;
 import org.opencv.imgproc.Moments;
 import org.opencv.objdetect.CascadeClassifier;
@@ -11,55 +13,106 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
-import org.springframework.util.FileCopyUtils;
 
 import jakarta.annotation.PostConstruct;
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 public class MediaPipeFaceDetectionService {
 
     private static final Logger log = LoggerFactory.getLogger(MediaPipeFaceDetectionService.class);
 
-    @Value("${opencv.haar.face:haarcascades/haarcascade_frontalface_default.xml}")
-    private String haarFaceCascadePath;
+    @Autowired
+    private CascadeDetectorPool detectorPool;
+
+    @Autowired
+    private FaceDetectionBatcher faceDetectionBatcher;
 
-    @Value("${opencv.haar.eye:haarcascades/haarcascade_eye.xml}")
-    private String haarEyeCascadePath;
+    @Autowired
+    private List<FaceDetector> faceDetectors;
+
+    @Autowired
+    private DetectionMetrics metrics;
 
     @Autowired
-    private MediaPipeModelDownloadService modelDownloadService;
+    private IntraFrameExecutor intraFrameExecutor;
+
+    // Face detection backend: haar (multi-scale cascade) or dnn (SSD face model, falls back to haar if missing)
+    @Value("${detection.backend:haar}")
+    private String detectionBackend;
+
+    // Downscale factor of the fast-mode face search: 1, 2, 4 or 8
+    @Value("${detection.fast.reduction:2}")
+    private int fastReduction;
+
+    // Temporal tracking: search around the previous face and only rescan the whole frame
+    // every keyframe-interval frames or when the face is lost
+    @Value("${detection.tracking.enabled:true}")
+    private boolean trackingEnabled;
+
+    @Value("${detection.tracking.keyframe-interval:10}")
+    private int keyframeInterval;
+
+    // Search window = previous face grown by this fraction of its size on every side
+    @Value("${detection.tracking.search-margin:0.5}")
+    private double trackingSearchMargin;
 
-    private CascadeClassifier faceCascade;
-    private CascadeClassifier eyesCascade;
+    // Pupil localization: centroid (weighted dark-pixel centroid on raw pixels, see PupilLocator)
+    // or contour (fixed threshold + largest contour, the original method)
+    @Value("${detection.pupil.locator:centroid}")
+    private String pupilLocator;
+
+    // Share of the eye region (below the eyebrow band) that the centroid locator treats as dark
+    @Value("${detection.pupil.dark-fraction:0.12}")
+    private double pupilDarkFraction;
+
+    // Intra-frame parallelism only pays off on large faces (kiosk cameras); smaller ones stay sequential
+    @Value("${detection.parallel.min-face-width:160}")
+    private int parallelMinFaceWidth;
+
+    // Share of the face width by which the two halves of the parallel eye search overlap
+    private static final double EYE_SPLIT_OVERLAP = 0.15;
+
+    // Single-signal verdict limits, shared by the verdict, its description and incident severity
+    public static final double MAX_YAW_DEGREES = 30;
+    public static final double MAX_PITCH_DEGREES = 20;
+    public static final double MAX_GAZE_OFFSET = 0.3;
+
+    // Size/Point/Rect are plain Java values (no native memory); the constant ones are shared
+    private static final Size MIN_EYE_SIZE = new Size(10, 10);
+    private static final Size PUPIL_BLUR_KERNEL = new Size(5, 5);
+
+    private final LongAdder trackedSearches = new LongAdder();
+    private final LongAdder trackingMisses = new LongAdder();
+    private final LongAdder fullScans = new LongAdder();
+
+    private FaceDetector faceDetector;
     private boolean useMediaPipe = false;
 
     @PostConstruct
     public void init() {
+        // Anything else would silently decode at full size (see reducedGrayscaleFlag)
+        if (fastReduction != 1 && fastReduction != 2 && fastReduction != 4 && fastReduction != 8) {
+            throw new IllegalStateException("detection.fast.reduction must be 1, 2, 4 or 8, got " + fastReduction);
+        }
         try {
-            // Check if MediaPipe models are available
-            boolean faceModelAvailable = modelDownloadService.isModelAvailable("face_detection");
-            boolean landmarksModelAvailable = modelDownloadService.isModelAvailable("face_landmarks");
-
-            useMediaPipe = faceModelAvailable && landmarksModelAvailable;
+            faceDetector = selectFaceDetector();
+            useMediaPipe = !HaarFaceDetector.NAME.equals(faceDetector.getName());
 
             if (useMediaPipe) {
-                log.info("Using MediaPipe models for face and landmark detection");
-                // Initialize MediaPipe-based detection here if models are available
-                // This is where you would load the TensorFlow Lite models
+                log.info("Using {} face detector, Haar cascades for eye detection", faceDetector.getName());
+                faceDetectionBatcher.start(faceDetector);
             } else {
-                log.info("Using OpenCV Haar cascades for face and eye detection (MediaPipe models not available)");
+                log.info("Using OpenCV Haar cascades for face and eye detection");
             }
 
-            // Always load OpenCV cascades as fallback
-            loadOpenCVCascades();
+            // OpenCV cascades are always available as fallback through the detector pool
+            log.info("OpenCV cascade detector pool ready with {} slots", detectorPool.getPoolSize());
 
         } catch (Exception e) {
             log.error("Error initializing face detection service", e);
@@ -67,149 +120,177 @@ public class MediaPipeFaceDetectionService {
         }
     }
 
-    private void loadOpenCVCascades() throws IOException {
-        // Load standard Haar cascades from classpath resources
-        Resource faceResource = new ClassPathResource(haarFaceCascadePath);
-        Resource eyeResource = new ClassPathResource(haarEyeCascadePath);
-
-        // Create temporary files
-        File tempFaceFile = File.createTempFile("face", ".xml");
-        File tempEyeFile = File.createTempFile("eye", ".xml");
-        tempFaceFile.deleteOnExit();
-        tempEyeFile.deleteOnExit();
-
-        // Copy resources to temp files
-        FileCopyUtils.copy(faceResource.getInputStream(), new FileOutputStream(tempFaceFile));
-        FileCopyUtils.copy(eyeResource.getInputStream(), new FileOutputStream(tempEyeFile));
-
-        // Load classifiers
-        this.faceCascade = new CascadeClassifier();
-        this.eyesCascade = new CascadeClassifier();
-
-        if (!this.faceCascade.load(tempFaceFile.getAbsolutePath())) {
-            log.error("Failed to load face cascade classifier");
-            throw new RuntimeException("Failed to load face cascade classifier");
+    private FaceDetector selectFaceDetector() {
+        FaceDetector haar = null;
+        for (FaceDetector detector : faceDetectors) {
+            if (detector.getName().equalsIgnoreCase(detectionBackend) && detector.isAvailable()) {
+                return detector;
+            }
+            if (HaarFaceDetector.NAME.equals(detector.getName())) {
+                haar = detector;
+            }
         }
-
-        if (!this.eyesCascade.load(tempEyeFile.getAbsolutePath())) {
-            log.error("Failed to load eye cascade classifier");
-            throw new RuntimeException("Failed to load eye cascade classifier");
+        if (haar == null) {
+            throw new IllegalStateException("Haar face detector is not registered");
         }
+        if (!HaarFaceDetector.NAME.equalsIgnoreCase(detectionBackend)) {
+            log.warn("Face detection backend '{}' is not available, falling back to Haar cascades", detectionBackend);
+        }
+        return haar;
+    }
 
-        log.info("OpenCV classifiers loaded successfully");
+    public String getFaceDetectorName() {
+        return faceDetector.getName();
     }
 
     public FaceDetectionResult analyzeFrame(Mat frame) {
+        return analyzeFrame(frame, null);
+    }
+
+    // tracking may be null for stateless one-off analysis
+    public FaceDetectionResult analyzeFrame(Mat frame, FaceTrackingState tracking) {
+        return analyzeFrame(frame, tracking, false);
+    }
+
+    // skipEyes: face count only, no eye/head-pose/gaze stage (used to shed load)
+    public FaceDetectionResult analyzeFrame(Mat frame, FaceTrackingState tracking, boolean skipEyes) {
         if (useMediaPipe) {
-            return analyzeWithMediaPipe(frame);
+            return analyzeWithMediaPipe(frame, tracking, skipEyes);
         } else {
-            return analyzeWithOpenCV(frame);
+            return analyzeWithOpenCV(frame, tracking, skipEyes);
         }
     }
 
-    private FaceDetectionResult analyzeWithMediaPipe(Mat frame) {
-        // This would use MediaPipe models if they're available
-        // For now, fall back to OpenCV since we haven't implemented the TFLite integration yet
-        log.debug("MediaPipe analysis not fully implemented yet, using OpenCV fallback");
-        return analyzeWithOpenCV(frame);
+    // Neural face detection on the full frame, Haar cascades only for the eyes inside the face.
+    // One forward pass costs about as much as a tracked local search, so the tracking window is
+    // not used here. The cascade lease is only taken once a single face has been found.
+    private FaceDetectionResult analyzeWithMediaPipe(Mat frame, FaceTrackingState tracking, boolean skipEyes) {
+        FaceDetectionResult result = new FaceDetectionResult();
+
+        try (MatScope scope = new MatScope()) {
+            long start = System.nanoTime();
+            Rect[] facesArray = faceDetectionBatcher.isEnabled()
+                    ? faceDetectionBatcher.detect(frame)
+                    : faceDetector.detectFaces(frame);
+            metrics.record(DetectionMetrics.Stage.FACE_DETECT, start);
+            fullScans.increment();
+            result.setFaceCount(facesArray.length);
+
+            if (facesArray.length == 1 && skipEyes) {
+                describeFaceOnly(result);
+            } else if (facesArray.length == 1) {
+                Rect faceRect = facesArray[0];
+                try (CascadeDetectorPool.Lease detector = detectorPool.acquire()) {
+                    start = System.nanoTime();
+                    Mat faceGray = detector.workspace().faceGray;
+                    Imgproc.cvtColor(scope.track(frame.submat(faceRect)), faceGray, Imgproc.COLOR_BGR2GRAY);
+                    Imgproc.equalizeHist(faceGray, faceGray);
+                    metrics.record(DetectionMetrics.Stage.GRAY, start);
+
+                    analyzeSingleFace(detector, scope, frame, faceGray, faceRect, result);
+                }
+            } else {
+                describeFaceCount(result, facesArray.length);
+            }
+        } catch (Exception e) {
+            log.error("Error analyzing frame", e);
+            result.setSuspiciousActivity(false);
+            result.setDescription("Error analyzing frame: " + e.getMessage());
+        }
+
+        return result;
     }
 
-    private FaceDetectionResult analyzeWithOpenCV(Mat frame) {
+    private FaceDetectionResult analyzeWithOpenCV(Mat frame, FaceTrackingState tracking, boolean skipEyes) {
         FaceDetectionResult result = new FaceDetectionResult();
 
-        try {
-            Mat grayFrame = new Mat();
+        // Each thread checks out its own classifier pair; CascadeClassifier is not thread-safe
+        try (CascadeDetectorPool.Lease detector = detectorPool.acquire();
+             MatScope scope = new MatScope()) {
+            long start = System.nanoTime();
+            Mat grayFrame = detector.workspace().gray;
             Imgproc.cvtColor(frame, grayFrame, Imgproc.COLOR_BGR2GRAY);
             Imgproc.equalizeHist(grayFrame, grayFrame);
+            metrics.record(DetectionMetrics.Stage.GRAY, start);
 
             // Detect faces
-            MatOfRect faces = new MatOfRect();
-            faceCascade.detectMultiScale(
-                    grayFrame,
-                    faces,
-                    1.1,        // Scale factor
-                    3,          // Min neighbors
-                    0,          // Flags
-                    new Size(30, 30),  // Min size
-                    new Size()         // Max size
-            );
-
-            Rect[] facesArray = faces.toArray();
+            start = System.nanoTime();
+            Rect[] facesArray = detectFaces(detector, grayFrame, tracking, 1.1, new Size(30, 30));
+            metrics.record(DetectionMetrics.Stage.FACE_DETECT, start);
             result.setFaceCount(facesArray.length);
 
-            if (facesArray.length == 1) {
-                // Process single face
+            if (facesArray.length == 1 && skipEyes) {
+                describeFaceOnly(result);
+            } else if (facesArray.length == 1) {
+                // Process single face on its region of interest
                 Rect faceRect = facesArray[0];
+                Mat faceROI = scope.track(grayFrame.submat(faceRect));
+                analyzeSingleFace(detector, scope, frame, faceROI, faceRect, result);
+            } else {
+                describeFaceCount(result, facesArray.length);
+            }
+        } catch (Exception e) {
+            log.error("Error analyzing frame", e);
+            result.setSuspiciousActivity(false);
+            result.setDescription("Error analyzing frame: " + e.getMessage());
+        }
 
-                // Get face region of interest
-                Mat faceROI = grayFrame.submat(faceRect);
-
-                // Detect eyes within the face region
-                MatOfRect eyes = new MatOfRect();
-                eyesCascade.detectMultiScale(
-                        faceROI,
-                        eyes,
-                        1.1,        // Scale factor (reduced for better detection)
-                        2,          // Min neighbors (reduced from default for more lenient detection)
-                        0,          // Flags
-                        new Size(10, 10), // Smaller minimum eye size
-                        new Size((double) faceRect.width /2, (double) faceRect.height /2) // Maximum eye size constraint
-                );
-                Rect[] eyesArray = eyes.toArray();
-
-                // Analyze eye positions
-                if (eyesArray.length >= 2) {
-                    // Found at least two eyes
-                    // Sort eyes by x-position (left to right)
-                    List<Rect> eyesList = new ArrayList<>(List.of(eyesArray));
-                    eyesList.sort((e1, e2) -> Integer.compare(e1.x, e2.x));
-
-                    // The first eye should be the left eye, second the right eye
-                    Rect leftEye = eyesList.get(0);
-                    Rect rightEye = eyesList.get(1);
-
-                    // Calculate eye positions
-                    Point leftEyeCenter = new Point(faceRect.x + leftEye.x + leftEye.width/2.0,
-                            faceRect.y + leftEye.y + leftEye.height/2.0);
-                    Point rightEyeCenter = new Point(faceRect.x + rightEye.x + rightEye.width/2.0,
-                            faceRect.y + rightEye.y + rightEye.height/2.0);
-
-                    // Calculate head pose estimates
-                    HeadPoseResult headPose = estimateHeadPose(leftEyeCenter, rightEyeCenter, faceRect);
-                    result.setHeadPose(headPose);
-
-                    // Try to detect eye gaze (pupil position)
-                    EyeGazeResult eyeGaze = estimateEyeGaze(frame, faceRect, leftEye, rightEye);
-                    result.setEyeGaze(eyeGaze);
-
-                    // Determine if activity is suspicious
-                    result.setSuspiciousActivity(detectSuspiciousActivity(headPose, eyeGaze));
-                    result.setDescription(generateDescription(result));
-                    result.setEvidenceType(result.isSuspiciousActivity() ? "suspicious_gaze" : "normal");
-                } else {
-                    result.setSuspiciousActivity(true);
-                    result.setDescription("Eyes not detected clearly - student may be looking away");
-                    result.setEvidenceType("no_eyes");
-                }
+        return result;
+    }
 
-                // Clean up
-                if (faceROI != null) faceROI.release();
-                if (eyes != null) eyes.release();
+    // Fast mode: the JPEG is decoded straight to a reduced grayscale image for the face search
+    // (libjpeg scales during the DCT, so this is much cheaper than a full decode + resize).
+    // The full-resolution color frame is only decoded when exactly one face needs eye analysis,
+    // and then only the face ROI is converted to gray.
+    public FaceDetectionResult analyzeEncodedFast(Mat encoded) {
+        return analyzeEncodedFast(encoded, null);
+    }
 
-            } else if (facesArray.length == 0) {
-                result.setSuspiciousActivity(true);
-                result.setDescription("No face detected - student may be absent");
-                result.setEvidenceType("no_face");
-            } else {
-                result.setSuspiciousActivity(true);
-                result.setDescription("Multiple faces detected (" + facesArray.length + ") - potential collaboration");
-                result.setEvidenceType("multiple_faces");
-            }
+    public FaceDetectionResult analyzeEncodedFast(Mat encoded, FaceTrackingState tracking) {
+        return analyzeEncodedFast(encoded, tracking, false);
+    }
 
-            // Clean up
-            if (grayFrame != null) grayFrame.release();
-            if (faces != null) faces.release();
+    public FaceDetectionResult analyzeEncodedFast(Mat encoded, FaceTrackingState tracking, boolean skipEyes) {
+        FaceDetectionResult result = new FaceDetectionResult();
+
+        try (CascadeDetectorPool.Lease detector = detectorPool.acquire();
+             MatScope scope = new MatScope()) {
+            long start = System.nanoTime();
+            Mat smallGray = scope.track(Imgcodecs.imdecode(encoded, reducedGrayscaleFlag()));
+            metrics.record(DetectionMetrics.Stage.DECODE, start);
+            if (smallGray.empty()) {
+                result.setDescription("Error analyzing frame: image could not be decoded");
+                return result;
+            }
+            start = System.nanoTime();
+            Imgproc.equalizeHist(smallGray, smallGray);
+            metrics.record(DetectionMetrics.Stage.GRAY, start);
+
+            // Coarser scale pyramid, as in the legacy webcam path; min size is the Haar
+            // window size since the image is already reduced
+            start = System.nanoTime();
+            Rect[] facesArray = detectFaces(detector, smallGray, tracking, 1.2, new Size(24, 24));
+            metrics.record(DetectionMetrics.Stage.FACE_DETECT, start);
+            result.setFaceCount(facesArray.length);
 
+            if (facesArray.length == 1 && skipEyes) {
+                describeFaceOnly(result);
+            } else if (facesArray.length == 1) {
+                start = System.nanoTime();
+                Mat frame = scope.track(Imgcodecs.imdecode(encoded, Imgcodecs.IMREAD_COLOR));
+                metrics.record(DetectionMetrics.Stage.DECODE, start);
+                Rect faceRect = scaleToFrame(facesArray[0], smallGray, frame);
+
+                start = System.nanoTime();
+                Mat faceGray = detector.workspace().faceGray;
+                Imgproc.cvtColor(scope.track(frame.submat(faceRect)), faceGray, Imgproc.COLOR_BGR2GRAY);
+                Imgproc.equalizeHist(faceGray, faceGray);
+                metrics.record(DetectionMetrics.Stage.GRAY, start);
+
+                analyzeSingleFace(detector, scope, frame, faceGray, faceRect, result);
+            } else {
+                describeFaceCount(result, facesArray.length);
+            }
         } catch (Exception e) {
             log.error("Error analyzing frame", e);
             result.setSuspiciousActivity(false);
@@ -219,9 +300,256 @@ public class MediaPipeFaceDetectionService {
         return result;
     }
 
+    // Face search with temporal tracking. While a session is tracked, only a window around the
+    // previous face is scanned, with the pyramid limited to sizes close to the previous face.
+    // A local search cannot see a second person entering the frame, which is why a full scan is
+    // still forced every keyframeInterval frames.
+    private Rect[] detectFaces(CascadeDetectorPool.Lease detector, Mat gray, FaceTrackingState tracking,
+                               double scaleFactor, Size minSize) {
+        boolean track = trackingEnabled && tracking != null;
+
+        if (track && tracking.canTrack(keyframeInterval)) {
+            Rect previous = tracking.lastFace();
+            Rect window = expandWithin(previous, trackingSearchMargin, gray);
+            Mat windowMat = gray.submat(window);
+            MatOfRect localFaces = new MatOfRect();
+            try {
+                detector.faceCascade().detectMultiScale(
+                        windowMat,
+                        localFaces,
+                        scaleFactor,
+                        3,
+                        0,
+                        new Size(Math.max(minSize.width, previous.width * 0.7), Math.max(minSize.height, previous.height * 0.7)),
+                        new Size(previous.width * 1.4, previous.height * 1.4)
+                );
+                Rect[] found = localFaces.toArray();
+                if (found.length == 1) {
+                    Rect face = found[0];
+                    face.x += window.x;
+                    face.y += window.y;
+                    tracking.update(face, false);
+                    trackedSearches.increment();
+                    return found;
+                }
+            } finally {
+                windowMat.release();
+                localFaces.release();
+            }
+            // Face lost or ambiguous locally: fall through to a full scan
+            trackingMisses.increment();
+        }
+
+        Rect[] facesArray = scanFullFrame(detector, gray, scaleFactor, minSize);
+        fullScans.increment();
+
+        if (track) {
+            if (facesArray.length == 1) {
+                tracking.update(facesArray[0], true);
+            } else {
+                tracking.reset();
+            }
+        }
+        return facesArray;
+    }
+
+    private Rect[] scanFullFrame(CascadeDetectorPool.Lease detector, Mat gray, double scaleFactor, Size minSize) {
+        MatOfRect faces = new MatOfRect();
+        try {
+            detector.faceCascade().detectMultiScale(
+                    gray,
+                    faces,
+                    scaleFactor,
+                    3,          // Min neighbors
+                    0,          // Flags
+                    minSize,
+                    new Size()  // Max size
+            );
+            return faces.toArray();
+        } finally {
+            faces.release();
+        }
+    }
+
+    private Rect expandWithin(Rect rect, double margin, Mat image) {
+        int dx = (int) (rect.width * margin);
+        int dy = (int) (rect.height * margin);
+        int x = Math.max(0, rect.x - dx);
+        int y = Math.max(0, rect.y - dy);
+        int right = Math.min(image.cols(), rect.x + rect.width + dx);
+        int bottom = Math.min(image.rows(), rect.y + rect.height + dy);
+        return new Rect(x, y, right - x, bottom - y);
+    }
+
+    public Map<String, Object> getTrackingStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("backend", faceDetector.getName());
+        stats.put("enabled", trackingEnabled);
+        stats.put("trackedSearches", trackedSearches.sum());
+        stats.put("trackingMisses", trackingMisses.sum());
+        stats.put("fullScans", fullScans.sum());
+        return stats;
+    }
+
+    private int reducedGrayscaleFlag() {
+        switch (fastReduction) {
+            case 2: return Imgcodecs.IMREAD_REDUCED_GRAYSCALE_2;
+            case 4: return Imgcodecs.IMREAD_REDUCED_GRAYSCALE_4;
+            case 8: return Imgcodecs.IMREAD_REDUCED_GRAYSCALE_8;
+            default: return Imgcodecs.IMREAD_GRAYSCALE; // 1, validated in init()
+        }
+    }
+
+    // The scale comes from the decoded sizes, not the configured factor: libjpeg rounds reduced
+    // sizes up, and a decoder that ignores the reduction would otherwise shift every rect
+    private Rect scaleToFrame(Rect rect, Mat small, Mat frame) {
+        double scaleX = (double) frame.cols() / small.cols();
+        double scaleY = (double) frame.rows() / small.rows();
+        int x = Math.min((int) Math.round(rect.x * scaleX), frame.cols() - 1);
+        int y = Math.min((int) Math.round(rect.y * scaleY), frame.rows() - 1);
+        int width = Math.min((int) Math.round(rect.width * scaleX), frame.cols() - x);
+        int height = Math.min((int) Math.round(rect.height * scaleY), frame.rows() - y);
+        return new Rect(x, y, width, height);
+    }
+
+    // Eye detection, head pose and gaze for a frame with exactly one face.
+    // faceGray is the equalized gray face ROI, faceRect its position in the full-resolution frame.
+    // Eye boxes are read into the slot's workspace instead of Rect[]/List objects.
+    private void analyzeSingleFace(CascadeDetectorPool.Lease detector, MatScope scope, Mat frame, Mat faceGray,
+                                   Rect faceRect, FaceDetectionResult result) {
+        AnalysisWorkspace workspace = detector.workspace();
+
+        // Detect eyes within the face region
+        long start = System.nanoTime();
+        Size maxEyeSize = new Size((double) faceRect.width / 2, (double) faceRect.height / 2);
+        if (!detectEyesParallel(detector, scope, faceGray, maxEyeSize)) {
+            detectEyes(detector.eyesCascade(), faceGray, workspace.eyes, maxEyeSize);
+            workspace.readEyes();
+        }
+        metrics.record(DetectionMetrics.Stage.EYE_DETECT, start);
+
+        // Analyze eye positions
+        if (workspace.eyeCount >= 2) {
+            // Found at least two eyes: the two leftmost are the left and right eye
+            int[] boxes = workspace.eyeBoxes;
+            int left = -1;
+            int right = -1;
+            for (int i = 0; i < workspace.eyeCount; i++) {
+                if (left < 0 || boxes[i * 4] < boxes[left * 4]) {
+                    right = left;
+                    left = i;
+                } else if (right < 0 || boxes[i * 4] < boxes[right * 4]) {
+                    right = i;
+                }
+            }
+            Rect leftEye = new Rect(boxes[left * 4], boxes[left * 4 + 1], boxes[left * 4 + 2], boxes[left * 4 + 3]);
+            Rect rightEye = new Rect(boxes[right * 4], boxes[right * 4 + 1], boxes[right * 4 + 2], boxes[right * 4 + 3]);
+
+            // Calculate head pose estimates from the eye centers
+            HeadPoseResult headPose = estimateHeadPose(
+                    faceRect.x + leftEye.x + leftEye.width / 2.0, faceRect.y + leftEye.y + leftEye.height / 2.0,
+                    faceRect.x + rightEye.x + rightEye.width / 2.0, faceRect.y + rightEye.y + rightEye.height / 2.0,
+                    faceRect);
+            result.setHeadPose(headPose);
+
+            // Try to detect eye gaze (pupil position)
+            start = System.nanoTime();
+            EyeGazeResult eyeGaze = estimateEyeGaze(workspace, scope, frame, faceRect, leftEye, rightEye);
+            metrics.record(DetectionMetrics.Stage.GAZE, start);
+            result.setEyeGaze(eyeGaze);
+
+            // Determine if activity is suspicious
+            result.setSuspiciousActivity(detectSuspiciousActivity(headPose, eyeGaze));
+            result.setDescription(generateDescription(result));
+            result.setEvidenceType(result.isSuspiciousActivity() ? "suspicious_gaze" : "normal");
+        } else {
+            result.setSuspiciousActivity(true);
+            result.setDescription("Eyes not detected clearly - student may be looking away");
+            result.setEvidenceType("no_eyes");
+        }
+    }
+
+    private void detectEyes(CascadeClassifier eyesCascade, Mat faceGray, MatOfRect eyes, Size maxEyeSize) {
+        eyesCascade.detectMultiScale(
+                faceGray,
+                eyes,
+                1.1,        // Scale factor (reduced for better detection)
+                2,          // Min neighbors (reduced from default for more lenient detection)
+                0,          // Flags
+                MIN_EYE_SIZE, // Smaller minimum eye size
+                maxEyeSize  // Maximum eye size constraint
+        );
+    }
+
+    // Intra-frame mode: the eye cascade runs on the left and the right part of the face at the same
+    // time, the right part on a second pool slot in a forked task. The parts overlap by
+    // EYE_SPLIT_OVERLAP of the face width so that an eye near the middle lies wholly in one of them;
+    // an eye seen in both is merged. Returns false, leaving the search to the caller, for small faces
+    // and when the node is saturated (no spare detector slot or no idle fork-join worker).
+    private boolean detectEyesParallel(CascadeDetectorPool.Lease detector, MatScope scope, Mat faceGray, Size maxEyeSize) {
+        if (!intraFrameExecutor.isEnabled() || faceGray.cols() < parallelMinFaceWidth) {
+            return false;
+        }
+        // Leave about half of the other slots to frames that are not split
+        CascadeDetectorPool.Lease helper = detectorPool.tryAcquire((detectorPool.getPoolSize() - 1) / 2);
+        if (helper == null) {
+            intraFrameExecutor.recordSaturated();
+            return false;
+        }
+
+        try (helper) {
+            int cols = faceGray.cols();
+            int overlap = (int) (cols * EYE_SPLIT_OVERLAP);
+            int rightStart = cols / 2 - overlap;
+            Mat leftPart = scope.track(faceGray.colRange(0, cols / 2 + overlap));
+            Mat rightPart = scope.track(faceGray.colRange(rightStart, cols));
+            AnalysisWorkspace helperWorkspace = helper.workspace();
+
+            ForkJoinTask<Void> right = intraFrameExecutor.fork(() -> {
+                detectEyes(helper.eyesCascade(), rightPart, helperWorkspace.eyes, maxEyeSize);
+                helperWorkspace.readEyes();
+                return null;
+            });
+            if (right == null) {
+                return false;
+            }
+
+            AnalysisWorkspace workspace = detector.workspace();
+            try {
+                detectEyes(detector.eyesCascade(), leftPart, workspace.eyes, maxEyeSize);
+                workspace.readEyes();
+            } finally {
+                // The helper slot goes back to the pool only once the forked search is done with it
+                right.join();
+            }
+            workspace.mergeEyes(helperWorkspace, rightStart);
+            return true;
+        }
+    }
+
+    // One face found, eye analysis skipped: nothing to judge beyond presence
+    private void describeFaceOnly(FaceDetectionResult result) {
+        result.setSuspiciousActivity(false);
+        result.setDescription("Face present (eye analysis skipped under load)");
+        result.setEvidenceType("normal");
+    }
+
+    private void describeFaceCount(FaceDetectionResult result, int faceCount) {
+        if (faceCount == 0) {
+            result.setSuspiciousActivity(true);
+            result.setDescription("No face detected - student may be absent");
+            result.setEvidenceType("no_face");
+        } else {
+            result.setSuspiciousActivity(true);
+            result.setDescription("Multiple faces detected (" + faceCount + ") - potential collaboration");
+            result.setEvidenceType("multiple_faces");
+        }
+    }
+
     // The rest of the methods (estimateHeadPose, estimateEyeGaze, etc.) remain the same as in your existing code...
 
-    private HeadPoseResult estimateHeadPose(Point leftEye, Point rightEye, Rect faceRect) {
+    private HeadPoseResult estimateHeadPose(double leftEyeX, double leftEyeY, double rightEyeX, double rightEyeY,
+                                            Rect faceRect) {
         // Simple head pose estimation based on eye position and face dimensions
         // In a real implementation, this would use facial landmarks and 3D geometry
 
@@ -230,20 +558,20 @@ public class MediaPipeFaceDetectionService {
         double roll = 0.0;  // Tilting head side to side
 
         // Calculate roll angle based on eye slope
-        double dY = rightEye.y - leftEye.y;
-        double dX = rightEye.x - leftEye.x;
+        double dY = rightEyeY - leftEyeY;
+        double dX = rightEyeX - leftEyeX;
         roll = Math.toDegrees(Math.atan2(dY, dX));
 
         // Calculate yaw based on eye position relative to face width
         double faceCenter = faceRect.x + faceRect.width / 2.0;
-        double eyesMidpointX = (leftEye.x + rightEye.x) / 2.0;
+        double eyesMidpointX = (leftEyeX + rightEyeX) / 2.0;
         double eyeOffsetRatio = (eyesMidpointX - faceCenter) / (faceRect.width / 2.0);
         yaw = eyeOffsetRatio * 45.0; // Approximate range of -45 to 45 degrees
 
         // Calculate pitch based on eye position relative to face height
         double faceTop = faceRect.y;
         double faceHeight = faceRect.height;
-        double eyesMidpointY = (leftEye.y + rightEye.y) / 2.0;
+        double eyesMidpointY = (leftEyeY + rightEyeY) / 2.0;
         double eyeVerticalRatio = (eyesMidpointY - faceTop) / faceHeight;
 
         // Eyes normally should be around 0.4 from the top in a frontal face
@@ -252,39 +580,35 @@ public class MediaPipeFaceDetectionService {
         return new HeadPoseResult(yaw, pitch, roll);
     }
 
-    private EyeGazeResult estimateEyeGaze(Mat frame, Rect faceRect, Rect leftEyeRect, Rect rightEyeRect) {
+    // Public so the gaze stage can be benchmarked on its own (EyeGazeBenchmark);
+    // one-off callers get a throwaway workspace, the pipeline passes the slot's
+    public EyeGazeResult estimateEyeGaze(Mat frame, Rect faceRect, Rect leftEyeRect, Rect rightEyeRect) {
+        try (AnalysisWorkspace workspace = new AnalysisWorkspace();
+             MatScope scope = new MatScope()) {
+            return estimateEyeGaze(workspace, scope, frame, faceRect, leftEyeRect, rightEyeRect);
+        }
+    }
+
+    public EyeGazeResult estimateEyeGaze(AnalysisWorkspace workspace, MatScope scope, Mat frame,
+                                         Rect faceRect, Rect leftEyeRect, Rect rightEyeRect) {
         EyeGazeResult result = new EyeGazeResult();
 
         try {
-            // Convert coordinates to be relative to the entire frame
-            Rect absLeftEyeRect = new Rect(
-                    faceRect.x + leftEyeRect.x,
-                    faceRect.y + leftEyeRect.y,
-                    leftEyeRect.width,
-                    leftEyeRect.height
-            );
-
-            Rect absRightEyeRect = new Rect(
-                    faceRect.x + rightEyeRect.x,
-                    faceRect.y + rightEyeRect.y,
-                    rightEyeRect.width,
-                    rightEyeRect.height
-            );
-
-            // Get eye regions
-            Mat leftEyeRegion = new Mat(frame, absLeftEyeRect);
-            Mat rightEyeRegion = new Mat(frame, absRightEyeRect);
-
-            // Find pupils in each eye using simple image processing
-            Point leftPupil = findPupilCenter(leftEyeRegion);
-            Point rightPupil = findPupilCenter(rightEyeRegion);
-
-            // Normalize pupil positions to -1.0 to 1.0 range where 0,0 is the eye center
-            double leftEyeNormX = (leftPupil.x - (leftEyeRect.width / 2.0)) / (leftEyeRect.width / 2.0);
-            double leftEyeNormY = (leftPupil.y - (leftEyeRect.height / 2.0)) / (leftEyeRect.height / 2.0);
-
-            double rightEyeNormX = (rightPupil.x - (rightEyeRect.width / 2.0)) / (rightEyeRect.width / 2.0);
-            double rightEyeNormY = (rightPupil.y - (rightEyeRect.height / 2.0)) / (rightEyeRect.height / 2.0);
+            // Eye regions, relative to the entire frame
+            Mat leftEyeRegion = scope.track(frame.submat(faceRect.y + leftEyeRect.y, faceRect.y + leftEyeRect.y + leftEyeRect.height,
+                    faceRect.x + leftEyeRect.x, faceRect.x + leftEyeRect.x + leftEyeRect.width));
+            Mat rightEyeRegion = scope.track(frame.submat(faceRect.y + rightEyeRect.y, faceRect.y + rightEyeRect.y + rightEyeRect.height,
+                    faceRect.x + rightEyeRect.x, faceRect.x + rightEyeRect.x + rightEyeRect.width));
+
+            // Find pupils in each eye using simple image processing, then
+            // normalize pupil positions to -1.0 to 1.0 range where 0,0 is the eye center
+            findPupilCenter(leftEyeRegion, workspace);
+            double leftEyeNormX = (workspace.pupilX - (leftEyeRect.width / 2.0)) / (leftEyeRect.width / 2.0);
+            double leftEyeNormY = (workspace.pupilY - (leftEyeRect.height / 2.0)) / (leftEyeRect.height / 2.0);
+
+            findPupilCenter(rightEyeRegion, workspace);
+            double rightEyeNormX = (workspace.pupilX - (rightEyeRect.width / 2.0)) / (rightEyeRect.width / 2.0);
+            double rightEyeNormY = (workspace.pupilY - (rightEyeRect.height / 2.0)) / (rightEyeRect.height / 2.0);
 
             // Set the gaze direction
             result.setLeftEyeHorizontalGaze(leftEyeNormX);
@@ -295,11 +619,6 @@ public class MediaPipeFaceDetectionService {
             // Calculate deviation from center
             result.setLeftEyePupilDeviation(Math.sqrt(leftEyeNormX*leftEyeNormX + leftEyeNormY*leftEyeNormY));
             result.setRightEyePupilDeviation(Math.sqrt(rightEyeNormX*rightEyeNormX + rightEyeNormY*rightEyeNormY));
-
-            // Clean up
-            if (leftEyeRegion != null) leftEyeRegion.release();
-            if (rightEyeRegion != null) rightEyeRegion.release();
-
         } catch (Exception e) {
             log.warn("Error estimating eye gaze", e);
             // Set default values in case of error
@@ -312,9 +631,39 @@ public class MediaPipeFaceDetectionService {
         return result;
     }
 
-    private Point findPupilCenter(Mat eyeRegion) {
+    public Point findPupilCenter(Mat eyeRegion) {
+        try (AnalysisWorkspace workspace = new AnalysisWorkspace()) {
+            findPupilCenter(eyeRegion, workspace);
+            return new Point(workspace.pupilX, workspace.pupilY);
+        }
+    }
+
+    // Pupil center relative to the eye region, written to workspace.pupilX/pupilY
+    public void findPupilCenter(Mat eyeRegion, AnalysisWorkspace workspace) {
+        if ("contour".equals(pupilLocator)) {
+            findPupilCenterContour(eyeRegion, workspace);
+        } else {
+            findPupilCenterCentroid(eyeRegion, workspace);
+        }
+    }
+
+    // One native conversion plus one pixel copy; threshold and centroid are computed in Java
+    public void findPupilCenterCentroid(Mat eyeRegion, AnalysisWorkspace workspace) {
+        Mat grayEye = workspace.eyeGray;
+        if (eyeRegion.channels() > 1) {
+            Imgproc.cvtColor(eyeRegion, grayEye, Imgproc.COLOR_BGR2GRAY);
+        } else {
+            eyeRegion.copyTo(grayEye);
+        }
+        PupilLocator locator = workspace.pupilLocator;
+        locator.locate(grayEye, pupilDarkFraction);
+        workspace.pupilX = locator.getX();
+        workspace.pupilY = locator.getY();
+    }
+
+    public void findPupilCenterContour(Mat eyeRegion, AnalysisWorkspace workspace) {
         // Convert to grayscale if needed
-        Mat grayEye = new Mat();
+        Mat grayEye = workspace.eyeGray;
         if (eyeRegion.channels() > 1) {
             Imgproc.cvtColor(eyeRegion, grayEye, Imgproc.COLOR_BGR2GRAY);
         } else {
@@ -323,16 +672,15 @@ public class MediaPipeFaceDetectionService {
 
         try {
             // Apply GaussianBlur to reduce noise
-            Imgproc.GaussianBlur(grayEye, grayEye, new Size(5, 5), 0);
+            Imgproc.GaussianBlur(grayEye, grayEye, PUPIL_BLUR_KERNEL, 0);
 
             // Apply threshold to identify darker regions (pupils are typically dark)
-            Mat thresholdEye = new Mat();
-            Imgproc.threshold(grayEye, thresholdEye, 70, 255, Imgproc.THRESH_BINARY_INV);
+            Imgproc.threshold(grayEye, workspace.eyeThreshold, 70, 255, Imgproc.THRESH_BINARY_INV);
 
             // Find contours of the thresholded image
-            List<MatOfPoint> contours = new ArrayList<>();
-            Mat hierarchy = new Mat();
-            Imgproc.findContours(thresholdEye, contours, hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
+            List<MatOfPoint> contours = workspace.contours;
+            Imgproc.findContours(workspace.eyeThreshold, contours, workspace.hierarchy,
+                    Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
 
             // Find the largest contour (likely the pupil)
             double maxArea = -1;
@@ -345,66 +693,61 @@ public class MediaPipeFaceDetectionService {
                 }
             }
 
-            // If we found a contour, calculate its center
+            // If we found a contour, use its center; otherwise assume the center of the eye region
             if (maxAreaIdx >= 0) {
                 Moments moments = Imgproc.moments(contours.get(maxAreaIdx));
-                double centerX = moments.get_m10() / moments.get_m00();
-                double centerY = moments.get_m01() / moments.get_m00();
-
-                // Clean up
-                if (thresholdEye != null) thresholdEye.release();
-                if (hierarchy != null) hierarchy.release();
-                for (MatOfPoint contour : contours) {
-                    if (contour != null) contour.release();
-                }
-
-                return new Point(centerX, centerY);
+                workspace.pupilX = moments.get_m10() / moments.get_m00();
+                workspace.pupilY = moments.get_m01() / moments.get_m00();
             } else {
-                // If no contour found, assume center of eye region
-                // Clean up
-                if (thresholdEye != null) thresholdEye.release();
-                if (hierarchy != null) hierarchy.release();
-                for (MatOfPoint contour : contours) {
-                    if (contour != null) contour.release();
-                }
-
-                return new Point(grayEye.cols() / 2.0, grayEye.rows() / 2.0);
+                workspace.pupilX = grayEye.cols() / 2.0;
+                workspace.pupilY = grayEye.rows() / 2.0;
             }
         } finally {
-            if (grayEye != null) grayEye.release();
+            workspace.clearContours();
         }
     }
 
     private boolean detectSuspiciousActivity(HeadPoseResult headPose, EyeGazeResult eyeGaze) {
+        return isSuspiciousPose(headPose.getYaw(), headPose.getPitch(),
+                eyeGaze.getLeftEyeHorizontalGaze(), eyeGaze.getRightEyeHorizontalGaze());
+    }
+
+    // Primitive form of the verdict so smoothed per-session values can be judged without building result objects
+    public static boolean isSuspiciousPose(double yaw, double pitch, double leftGaze, double rightGaze) {
         // Check for suspicious head pose (looking away)
-        boolean suspiciousHeadPose = Math.abs(headPose.getYaw()) > 30 || Math.abs(headPose.getPitch()) > 20;
+        boolean suspiciousHeadPose = Math.abs(yaw) > MAX_YAW_DEGREES || Math.abs(pitch) > MAX_PITCH_DEGREES;
 
         // Check for suspicious eye gaze (looking to the side)
-        boolean suspiciousEyeGaze = Math.abs(eyeGaze.getLeftEyeHorizontalGaze()) > 0.3 ||
-                Math.abs(eyeGaze.getRightEyeHorizontalGaze()) > 0.3;
+        boolean suspiciousEyeGaze = Math.abs(leftGaze) > MAX_GAZE_OFFSET || Math.abs(rightGaze) > MAX_GAZE_OFFSET;
 
         // Combined detection: If both head and eyes are looking in the same direction away from the screen
         boolean combinedSuspicious = false;
 
         // If head is turning right AND eyes are looking right -> suspicious
-        if (headPose.getYaw() > 15 && (eyeGaze.getLeftEyeHorizontalGaze() > 0.2 && eyeGaze.getRightEyeHorizontalGaze() > 0.2)) {
+        if (yaw > 15 && (leftGaze > 0.2 && rightGaze > 0.2)) {
             combinedSuspicious = true;
         }
 
         // If head is turning left AND eyes are looking left -> suspicious
-        if (headPose.getYaw() < -15 && (eyeGaze.getLeftEyeHorizontalGaze() < -0.2 && eyeGaze.getRightEyeHorizontalGaze() < -0.2)) {
+        if (yaw < -15 && (leftGaze < -0.2 && rightGaze < -0.2)) {
             combinedSuspicious = true;
         }
 
         // If head is straight but eyes are looking significantly to the side -> suspicious
-        if (Math.abs(headPose.getYaw()) < 10 &&
-                (Math.abs(eyeGaze.getLeftEyeHorizontalGaze()) > 0.4 || Math.abs(eyeGaze.getRightEyeHorizontalGaze()) > 0.4)) {
+        if (Math.abs(yaw) < 10 && (Math.abs(leftGaze) > 0.4 || Math.abs(rightGaze) > 0.4)) {
             combinedSuspicious = true;
         }
 
         return suspiciousHeadPose || suspiciousEyeGaze || combinedSuspicious;
     }
 
+    // How far head pose or gaze exceed their limits (1.0 = at the limit), used to rank frames
+    public static double poseSeverity(double yaw, double pitch, double leftGaze, double rightGaze) {
+        double headPose = Math.max(Math.abs(yaw) / MAX_YAW_DEGREES, Math.abs(pitch) / MAX_PITCH_DEGREES);
+        double gaze = Math.max(Math.abs(leftGaze), Math.abs(rightGaze)) / MAX_GAZE_OFFSET;
+        return Math.max(headPose, gaze);
+    }
+
     private String generateDescription(FaceDetectionResult result) {
         HeadPoseResult headPose = result.getHeadPose();
         EyeGazeResult eyeGaze = result.getEyeGaze();
@@ -415,11 +758,11 @@ public class MediaPipeFaceDetectionService {
         }
 
         // Check head pose
-        if (Math.abs(headPose.getYaw()) > 30) {
+        if (Math.abs(headPose.getYaw()) > MAX_YAW_DEGREES) {
             return "Head turned " + (headPose.getYaw() > 0 ? "right" : "left") + " - student may be looking away";
         }
 
-        if (Math.abs(headPose.getPitch()) > 20) {
+        if (Math.abs(headPose.getPitch()) > MAX_PITCH_DEGREES) {
             return "Head tilted " + (headPose.getPitch() > 0 ? "up" : "down") + " - student may be looking at notes";
         }
 
@@ -427,7 +770,8 @@ public class MediaPipeFaceDetectionService {
         double leftGaze = eyeGaze.getLeftEyeHorizontalGaze();
         double rightGaze = eyeGaze.getRightEyeHorizontalGaze();
 
-        if ((leftGaze > 0.3 && rightGaze > 0.3) || (leftGaze < -0.3 && rightGaze < -0.3)) {
+        if ((leftGaze > MAX_GAZE_OFFSET && rightGaze > MAX_GAZE_OFFSET)
+                || (leftGaze < -MAX_GAZE_OFFSET && rightGaze < -MAX_GAZE_OFFSET)) {
             return "Eyes looking " + (leftGaze > 0 ? "right" : "left") + " - student may be viewing other materials";
         }
 
@@ -0,0 +1,238 @@
+package com.lms.cheating_detection.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Groups single requests from many callers into batches for one inference call.
+// A batch is dispatched as soon as it holds maxBatchSize items or its oldest item has waited
+// maxWaitMillis, whichever comes first. The batch function must return one output per input,
+// in input order; each caller gets its own output through a CompletableFuture.
+// Every submitted future completes: items still queued or not yet handed to a batch thread when
+// the scheduler closes fail with IllegalStateException, and so does a batch whose function throws.
+public class MicroBatchScheduler<I, O> implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(MicroBatchScheduler.class);
+
+    private final String name;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final Function<List<I>, List<O>> batchFunction;
+    private final BlockingQueue<Pending<I, O>> queue = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+    private final ExecutorService batchExecutor;
+    private volatile boolean running = true;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder items = new LongAdder();
+    private final LongAdder totalQueueDelayNanos = new LongAdder();
+    private final AtomicLong maxQueueDelayNanos = new AtomicLong();
+    private final LongAdder withdrawn = new LongAdder();
+
+    public MicroBatchScheduler(String name, int maxBatchSize, long maxWaitMillis, int concurrency,
+                               Function<List<I>, List<O>> batchFunction) {
+        this.name = name;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.batchFunction = batchFunction;
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.batchExecutor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, name + "-batch-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher = new Thread(this::dispatchLoop, name + "-batch-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    public CompletableFuture<O> submit(I input) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException(name + " batch scheduler is closed"));
+        }
+        Pending<I, O> pending = new Pending<>(input, System.nanoTime());
+        queue.add(pending);
+        if (!running) {
+            // Raced with close() past the check above, after its final drain
+            failQueued();
+        }
+        return pending.future;
+    }
+
+    // Submits and waits up to timeoutMillis for the result. An input whose batch has not started by
+    // then is withdrawn, so the batch function never reads it, and TimeoutException is thrown. Once
+    // its batch runs the caller waits for the result: the function may still be reading the input
+    // (e.g. a native Mat the caller releases afterwards).
+    public O call(I input, long timeoutMillis) throws ExecutionException, TimeoutException {
+        Pending<I, O> pending = new Pending<>(input, System.nanoTime());
+        if (!running) {
+            throw new IllegalStateException(name + " batch scheduler is closed");
+        }
+        queue.add(pending);
+        if (!running) {
+            failQueued();
+        }
+
+        boolean interrupted = false;
+        try {
+            try {
+                return pending.future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException | InterruptedException e) {
+                interrupted = e instanceof InterruptedException;
+                if (pending.claimed.compareAndSet(false, true)) {
+                    withdrawn.increment();
+                    TimeoutException timeout = new TimeoutException(name + " batch did not start within " + timeoutMillis + " ms");
+                    pending.future.completeExceptionally(timeout);
+                    throw timeout;
+                }
+            }
+            // Already running: wait for it, whatever the interrupt status
+            while (true) {
+                try {
+                    return pending.future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            List<Pending<I, O>> batch = new ArrayList<>(maxBatchSize);
+            try {
+                Pending<I, O> first = queue.take();
+                batch.add(first);
+
+                long deadline = first.submittedAtNanos + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending<I, O> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(batch);
+                break;
+            }
+
+            try {
+                batchExecutor.execute(() -> runBatch(batch));
+            } catch (RejectedExecutionException e) {
+                // close() shut the executor down between take() and here
+                fail(batch);
+            }
+        }
+        failQueued();
+    }
+
+    private void runBatch(List<Pending<I, O>> batch) {
+        // Skip inputs withdrawn by call() after a timeout; the rest can no longer be withdrawn
+        batch.removeIf(pending -> !pending.claimed.compareAndSet(false, true));
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        List<I> inputs = new ArrayList<>(batch.size());
+        for (Pending<I, O> pending : batch) {
+            long delay = start - pending.submittedAtNanos;
+            totalQueueDelayNanos.add(delay);
+            maxQueueDelayNanos.accumulateAndGet(delay, Math::max);
+            inputs.add(pending.input);
+        }
+        batches.increment();
+        items.add(batch.size());
+
+        try {
+            List<O> outputs = batchFunction.apply(inputs);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(outputs.get(i));
+            }
+        } catch (Throwable t) {
+            log.error("Batch of {} failed in {} scheduler", batch.size(), name, t);
+            batch.forEach(pending -> pending.future.completeExceptionally(t));
+            if (t instanceof Error error) {
+                throw error;
+            }
+        }
+    }
+
+    private void fail(List<Pending<I, O>> batch) {
+        IllegalStateException closed = new IllegalStateException(name + " batch scheduler is closed");
+        batch.forEach(pending -> pending.future.completeExceptionally(closed));
+    }
+
+    private void failQueued() {
+        List<Pending<I, O>> stranded = new ArrayList<>();
+        queue.drainTo(stranded);
+        fail(stranded);
+    }
+
+    public Map<String, Object> getStats() {
+        long batchCount = batches.sum();
+        long itemCount = items.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxBatchSize", maxBatchSize);
+        stats.put("batches", batchCount);
+        stats.put("items", itemCount);
+        stats.put("queued", queue.size());
+        stats.put("batchFillRatio", getBatchFillRatio());
+        stats.put("avgQueueDelayMicros", itemCount == 0 ? 0 : totalQueueDelayNanos.sum() / itemCount / 1_000);
+        stats.put("maxQueueDelayMicros", maxQueueDelayNanos.get() / 1_000);
+        stats.put("withdrawnAfterTimeout", withdrawn.sum());
+        return stats;
+    }
+
+    public double getBatchFillRatio() {
+        long batchCount = batches.sum();
+        return batchCount == 0 ? 0.0 : (double) items.sum() / batchCount / maxBatchSize;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        dispatcher.interrupt();
+        batchExecutor.shutdown();
+        failQueued();
+    }
+
+    private static final class Pending<I, O> {
+        private final I input;
+        private final long submittedAtNanos;
+        private final CompletableFuture<O> future = new CompletableFuture<>();
+        // Set by the batch that runs the input, or by call() withdrawing it; whoever is first wins
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private Pending(I input, long submittedAtNanos) {
+            this.input = input;
+            this.submittedAtNanos = submittedAtNanos;
+        }
+    }
+}
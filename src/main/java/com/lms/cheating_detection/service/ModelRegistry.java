@@ -0,0 +1,134 @@
+package com.lms.cheating_detection.service;
+
+import org.opencv.core.MatOfByte;
+import org.opencv.objdetect.CascadeClassifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Single place where model files are located and loaded, so cold start is cheap and measurable.
+// OpenCV can only parse cascades from the file system; classpath cascades are extracted once into
+// models.cache-directory under a name containing a hash of their content. A later boot (or another
+// pod on the same volume) finds the file already there and skips the copy, and a changed cascade
+// gets a new name instead of a stale hit. DNN model files are read into memory once and every
+// network instance is parsed from that buffer. Load times are kept per model and logged once the
+// application is ready.
+@Component
+@DependsOn("openCVConfig")
+public class ModelRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(ModelRegistry.class);
+
+    @Value("${models.cache-directory:${java.io.tmpdir}/cheating-detection-models}")
+    private String cacheDirectory;
+
+    private final Map<String, Path> extractedFiles = new ConcurrentHashMap<>();
+    private final Map<String, Long> loadMillis = new ConcurrentHashMap<>();
+
+    // File system copy of a classpath model, extracted at most once per content
+    public Path extract(String classpathLocation) {
+        return extractedFiles.computeIfAbsent(classpathLocation, location -> {
+            try {
+                return extractToCache(location);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not extract model " + location, e);
+            }
+        });
+    }
+
+    private Path extractToCache(String classpathLocation) throws IOException {
+        byte[] content;
+        try (InputStream in = new ClassPathResource(classpathLocation).getInputStream()) {
+            content = in.readAllBytes();
+        }
+
+        String fileName = Paths.get(classpathLocation).getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        String extension = dot > 0 ? fileName.substring(dot) : "";
+        Path directory = Paths.get(cacheDirectory);
+        Path target = directory.resolve(baseName + "-" + sha256(content).substring(0, 16) + extension);
+
+        if (Files.exists(target) && Files.size(target) == content.length) {
+            log.debug("Model {} found in cache at {}", classpathLocation, target);
+            return target;
+        }
+
+        // Write next to the target and move it in place, so a concurrent boot never reads half a file
+        Files.createDirectories(directory);
+        Path partial = Files.createTempFile(directory, baseName, ".part");
+        try {
+            Files.write(partial, content);
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+        log.info("Extracted model {} to {}", classpathLocation, target);
+        return target;
+    }
+
+    public CascadeClassifier loadCascade(String classpathLocation) {
+        Path file = extract(classpathLocation);
+        CascadeClassifier classifier = new CascadeClassifier();
+        if (!classifier.load(file.toString())) {
+            throw new IllegalStateException("Failed to load cascade classifier " + classpathLocation);
+        }
+        return classifier;
+    }
+
+    // Whole model file in native memory, to parse several network instances without rereading it.
+    // The caller releases the buffer once all instances are created.
+    public MatOfByte readModel(Path file) {
+        try {
+            return new MatOfByte(Files.readAllBytes(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read model " + file, e);
+        }
+    }
+
+    public void recordLoad(String model, long startNanos) {
+        long millis = (System.nanoTime() - startNanos) / 1_000_000;
+        loadMillis.merge(model, millis, Long::sum);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void logLoadTimes() {
+        log.info("Models loaded: {} (JVM uptime {} ms)", loadMillis, ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cacheDirectory", cacheDirectory);
+        stats.put("extractedFiles", extractedFiles.size());
+        stats.put("loadMillis", new LinkedHashMap<>(loadMillis));
+        return stats;
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.lms.cheating_detection.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Core-sized platform pool for CPU-bound OpenCV work. With spring.threads.virtual.enabled, requests
+// (multipart reads, JDBC, socket writes) run on virtual threads, but a native OpenCV call pins its
+// carrier for the whole call, so a burst of analyses would occupy every carrier and stall all other
+// virtual threads. call() therefore hands the work to this pool when invoked from a virtual thread
+// and parks the caller until it is done; platform callers (the async workers, the legacy capture
+// tasks) already run on bounded pools and execute inline. The queue is bounded too
+// (opencv.executor.queue-capacity): past it call() and execute() throw RejectedExecutionException,
+// which /analyze answers with 429, instead of parking an unbounded number of virtual threads.
+@Component
+public class OpenCvExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenCvExecutor.class);
+
+    // 0 = one thread per available core
+    @Value("${opencv.executor.threads:0}")
+    private int configuredThreads;
+
+    // 0 = four waiting tasks per thread
+    @Value("${opencv.executor.queue-capacity:0}")
+    private int configuredQueueCapacity;
+
+    private ThreadPoolExecutor pool;
+
+    private final LongAdder offloaded = new LongAdder();
+    private final LongAdder inline = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        int threads = configuredThreads > 0 ? configuredThreads : Runtime.getRuntime().availableProcessors();
+        int queueCapacity = configuredQueueCapacity > 0 ? configuredQueueCapacity : threads * 4;
+        AtomicInteger threadIndex = new AtomicInteger();
+        pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "opencv-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, (runnable, executor) -> {
+            rejected.increment();
+            throw new RejectedExecutionException("OpenCV executor queue full (" + queueCapacity + " tasks)");
+        });
+        log.info("OpenCV executor started with {} platform threads, queue capacity {}", threads, queueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    // Runs CPU-bound work off virtual threads; exceptions of the task are rethrown unchecked.
+    // Throws RejectedExecutionException when the queue is full.
+    public <T> T call(Callable<T> task) {
+        if (!Thread.currentThread().isVirtual()) {
+            inline.increment();
+            try {
+                return task.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        offloaded.increment();
+        try {
+            return pool.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for OpenCV work", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    // Fire-and-forget variant for scheduled work; throws RejectedExecutionException when the queue is full
+    public void execute(Runnable task) {
+        pool.execute(task);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("threads", pool.getCorePoolSize());
+        stats.put("active", pool.getActiveCount());
+        stats.put("queued", pool.getQueue().size());
+        stats.put("queueCapacity", pool.getQueue().size() + pool.getQueue().remainingCapacity());
+        stats.put("rejectedTasks", rejected.sum());
+        stats.put("offloadedCalls", offloaded.sum());
+        stats.put("inlineCalls", inline.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,59 @@
+package com.lms.cheating_detection.service;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import java.nio.ByteBuffer;
+
+// One encoded frame held in a pooled direct buffer. The bytes live outside the Java heap and
+// OpenCV reads them in place, so the frame is never copied into a byte[] or a MatOfByte.
+// (Only when the pool is exhausted does the frame sit in a heap buffer, copied on asMat.)
+// Must be closed to hand the buffer back to the pool.
+public final class PooledFrame implements AutoCloseable {
+
+    private final FrameBufferPool pool;
+    private FrameBufferPool.FrameBuffer frameBuffer;
+    private final int length;
+
+    PooledFrame(FrameBufferPool pool, FrameBufferPool.FrameBuffer frameBuffer, int length) {
+        this.pool = pool;
+        this.frameBuffer = frameBuffer;
+        this.length = length;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    // Mat header over the encoded bytes (no copy); release it before closing the frame
+    public Mat asMat() {
+        if (frameBuffer.buffer.isDirect()) {
+            return new Mat(1, length, CvType.CV_8UC1, frameBuffer.buffer);
+        }
+        Mat mat = new Mat(1, length, CvType.CV_8UC1);
+        mat.put(0, 0, frameBuffer.buffer.array(), 0, length);
+        return mat;
+    }
+
+    // Read-only view of the encoded bytes, valid until the frame is closed
+    public ByteBuffer bytes() {
+        ByteBuffer view = frameBuffer.buffer.asReadOnlyBuffer();
+        view.position(0).limit(length);
+        return view;
+    }
+
+    // Heap copy of the encoded bytes for consumers that outlive the frame, such as queued evidence writes
+    public byte[] toByteArray() {
+        byte[] copy = new byte[length];
+        bytes().get(copy);
+        return copy;
+    }
+
+    @Override
+    public void close() {
+        if (frameBuffer != null) {
+            pool.release(frameBuffer);
+            frameBuffer = null;
+        }
+    }
+}
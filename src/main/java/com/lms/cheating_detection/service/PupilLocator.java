@@ -0,0 +1,91 @@
+package com.lms.cheating_detection.service;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import java.util.Arrays;
+
+// Pupil center as the weighted centroid of the darkest pixels of a gray eye region.
+// One Mat.get copies the region into a reused byte[]; everything else is a plain Java pass over
+// the pixels: a 256-bin histogram picks the threshold so that about dark-fraction of the region
+// counts as dark (adapts to lighting instead of a fixed gray level), and each dark pixel weighs
+// (threshold - value + 1), so the pupil core dominates over its dark rim. The top band of the
+// region is skipped because Haar eye boxes usually include part of the eyebrow.
+// Not thread-safe: one instance per AnalysisWorkspace.
+public final class PupilLocator {
+
+    // Fraction of rows at the top of the eye box that is ignored (eyebrow)
+    static final double EYEBROW_FRACTION = 0.2;
+
+    private byte[] pixels = new byte[0];
+    private final int[] histogram = new int[256];
+    private double x;
+    private double y;
+
+    // gray must be CV_8UC1; the result is relative to the region, read it with getX()/getY()
+    public void locate(Mat gray, double darkFraction) {
+        if (gray.type() != CvType.CV_8UC1) {
+            throw new IllegalArgumentException("Pupil locator needs an 8-bit single-channel image");
+        }
+        int width = gray.cols();
+        int height = gray.rows();
+        int size = width * height;
+        if (pixels.length < size) {
+            pixels = new byte[size];
+        }
+        if (size > 0) {
+            gray.get(0, 0, pixels);
+        }
+        locate(pixels, width, height, darkFraction);
+    }
+
+    public void locate(byte[] pixels, int width, int height, double darkFraction) {
+        int firstRow = (int) (height * EYEBROW_FRACTION);
+        int count = (height - firstRow) * width;
+        if (count <= 0) {
+            x = width / 2.0;
+            y = height / 2.0;
+            return;
+        }
+
+        // Adaptive threshold: the gray level below which darkFraction of the pixels fall
+        Arrays.fill(histogram, 0);
+        for (int i = firstRow * width; i < height * width; i++) {
+            histogram[pixels[i] & 0xFF]++;
+        }
+        long target = Math.max(1, Math.round(count * darkFraction));
+        int threshold = 0;
+        long cumulative = histogram[0];
+        while (cumulative < target && threshold < 255) {
+            cumulative += histogram[++threshold];
+        }
+
+        long sumWeight = 0;
+        long sumX = 0;
+        long sumY = 0;
+        for (int row = firstRow; row < height; row++) {
+            int offset = row * width;
+            for (int col = 0; col < width; col++) {
+                int value = pixels[offset + col] & 0xFF;
+                if (value <= threshold) {
+                    int weight = threshold - value + 1;
+                    sumWeight += weight;
+                    sumX += (long) weight * col;
+                    sumY += (long) weight * row;
+                }
+            }
+        }
+
+        // Pixel indices, the same coordinates as the contour moments of the contour locator
+        x = (double) sumX / sumWeight;
+        y = (double) sumY / sumWeight;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+}
@@ -0,0 +1,90 @@
+package com.lms.cheating_detection.service;
+
+import com.lms.cheating_detection.model.MonitoringSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Recommends when each client should capture its next frame. Sessions that keep coming back
+// compliant back off from the base interval towards the maximum (doubling every
+// stable-frames-per-step frames); a suspicious-looking frame snaps the session to the minimum so an
+// incident is confirmed quickly. On top of that, all intervals are stretched while the detector
+// pool is busy above load.high-water, so the server sheds sampling rate before it sheds requests.
+@Component
+public class SamplingPolicy {
+
+    private final CascadeDetectorPool detectorPool;
+
+    @Value("${sampling.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sampling.base-interval-ms:2000}")
+    private long baseIntervalMs;
+
+    @Value("${sampling.min-interval-ms:500}")
+    private long minIntervalMs;
+
+    @Value("${sampling.max-interval-ms:10000}")
+    private long maxIntervalMs;
+
+    @Value("${sampling.stable-frames-per-step:5}")
+    private int stableFramesPerStep;
+
+    // Detector pool utilization above which intervals are stretched, up to max-multiplier at 100%
+    @Value("${sampling.load.high-water:0.75}")
+    private double loadHighWater;
+
+    @Value("${sampling.load.max-multiplier:4}")
+    private double maxLoadMultiplier;
+
+    private double loadAverage;
+
+    public SamplingPolicy(CascadeDetectorPool detectorPool) {
+        this.detectorPool = detectorPool;
+    }
+
+    public long getBaseIntervalMs() {
+        return baseIntervalMs;
+    }
+
+    // Updates the session's streak with this frame and returns the recommended next capture interval
+    public long nextInterval(MonitoringSession session, boolean looksSuspicious) {
+        if (!enabled) {
+            return baseIntervalMs;
+        }
+
+        long interval;
+        if (looksSuspicious) {
+            session.getCompliantFrames().set(0);
+            interval = minIntervalMs;
+        } else {
+            int steps = session.getCompliantFrames().incrementAndGet() / Math.max(1, stableFramesPerStep);
+            interval = baseIntervalMs << Math.min(steps, 16);
+        }
+
+        interval = (long) (interval * loadMultiplier());
+        return Math.max(minIntervalMs, Math.min(maxIntervalMs, interval));
+    }
+
+    private synchronized double loadMultiplier() {
+        int poolSize = detectorPool.getPoolSize();
+        double utilization = poolSize == 0 ? 0 : (double) (poolSize - detectorPool.getAvailable()) / poolSize;
+        loadAverage += 0.2 * (utilization - loadAverage);
+
+        if (loadAverage <= loadHighWater) {
+            return 1.0;
+        }
+        double pressure = (loadAverage - loadHighWater) / (1.0 - loadHighWater);
+        return 1.0 + pressure * (maxLoadMultiplier - 1.0);
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("detectorLoad", Math.round(loadAverage * 100) / 100.0);
+        stats.put("loadHighWater", loadHighWater);
+        return stats;
+    }
+}
@@ -0,0 +1,264 @@
+package com.lms.cheating_detection.service;
+
+import com.lms.cheating_detection.model.SuspiciousActivity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Write-behind buffer for suspicious activity rows. Detection threads only enqueue; a flusher
+// writes every activity.write-behind.flush-interval-ms, or as soon as batch-size rows are pending,
+// with one JDBC batch INSERT. The id stays IDENTITY (existing tables keep their keys), which is why
+// this goes through JdbcTemplate: Hibernate cannot batch IDENTITY inserts.
+// The queue is bounded; when it is full the submitting thread flushes itself instead of dropping rows.
+// A batch that fails with a transient error (connection lost, lock or query timeout) is kept and
+// retried with exponential backoff, up to max-retries times, before any newer row is written; while
+// the database is down and the buffer is full, submit() throws like a direct save would. A batch
+// rejected for its content is written row by row, so only the offending rows are lost.
+@Component
+public class SuspiciousActivityWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(SuspiciousActivityWriter.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO suspicious_activities " +
+            "(session_id, exam_id, description, timestamp, evidence_path, end_timestamp, frame_count) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DetectionMetrics metrics;
+
+    @Value("${activity.write-behind.batch-size:100}")
+    private int batchSize;
+
+    @Value("${activity.write-behind.flush-interval-ms:500}")
+    private long flushIntervalMs;
+
+    @Value("${activity.write-behind.capacity:10000}")
+    private int capacity;
+
+    @Value("${activity.write-behind.max-retries:5}")
+    private int maxRetries;
+
+    @Value("${activity.write-behind.max-backoff-ms:30000}")
+    private long maxBackoffMs;
+
+    private BlockingQueue<SuspiciousActivity> pending;
+    private ScheduledExecutorService flusher;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    // Rows of a transiently failed batch, written before anything else; guarded by flushLock
+    private List<SuspiciousActivity> retryRows;
+    private int retryAttempts;
+    private long nextRetryNanos;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder insertedRows = new LongAdder();
+    private final LongAdder failedRows = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder rowByRowFallbacks = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder callerFlushes = new LongAdder();
+
+    public SuspiciousActivityWriter(JdbcTemplate jdbcTemplate, DetectionMetrics metrics) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.metrics = metrics;
+    }
+
+    @PostConstruct
+    public void init() {
+        pending = new ArrayBlockingQueue<>(capacity);
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "activity-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Suspicious activity write-behind started: batch size {}, flush every {} ms, capacity {}",
+                batchSize, flushIntervalMs, capacity);
+    }
+
+    // Writes everything still buffered before the datasource goes away
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        if (!flush(true)) {
+            int lost = pending.size() + (retryRows != null ? retryRows.size() : 0);
+            log.error("Database unavailable at shutdown, {} suspicious activities were not written", lost);
+        }
+    }
+
+    public void submit(SuspiciousActivity activity) {
+        submitted.increment();
+        while (!pending.offer(activity)) {
+            // Buffer full: write on this thread rather than grow memory or lose rows
+            callerFlushes.increment();
+            if (!flush(true)) {
+                throw new IllegalStateException("Suspicious activity buffer full and database writes are failing");
+            }
+        }
+
+        if (pending.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    public void flush() {
+        flush(false);
+    }
+
+    // Writes the retry batch (once its backoff has passed, or right away when forced) and then the
+    // buffer; false when a transient failure stopped it
+    private boolean flush(boolean force) {
+        flushLock.lock();
+        try {
+            if (retryRows != null) {
+                if (!force && System.nanoTime() < nextRetryNanos) {
+                    return false;
+                }
+                List<SuspiciousActivity> rows = retryRows;
+                retryRows = null;
+                retries.increment();
+                if (!writeBatch(rows)) {
+                    return false;
+                }
+            }
+
+            List<SuspiciousActivity> batch = new ArrayList<>(batchSize);
+            while (pending.drainTo(batch, batchSize) > 0) {
+                if (!writeBatch(batch)) {
+                    return false;
+                }
+                batch = new ArrayList<>(batchSize);
+            }
+            return true;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // false when the rows were kept for a retry
+    private boolean writeBatch(List<SuspiciousActivity> batch) {
+        long start = System.nanoTime();
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), this::bind);
+            metrics.record(DetectionMetrics.Stage.DB_INSERT, start);
+            batches.increment();
+            insertedRows.add(batch.size());
+            retryAttempts = 0;
+            log.debug("Wrote {} suspicious activities in one batch", batch.size());
+            return true;
+        } catch (DataAccessException e) {
+            if (isTransient(e)) {
+                return scheduleRetry(batch, e);
+            }
+            // A row the database rejects (BatchUpdateException): write the rows one by one. The driver
+            // runs a batch as one implicit transaction, so none of its rows were stored.
+            log.warn("Batch of {} suspicious activities rejected, writing them one by one", batch.size(), e);
+            rowByRowFallbacks.increment();
+            return writeRowByRow(batch);
+        }
+    }
+
+    private boolean writeRowByRow(List<SuspiciousActivity> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            SuspiciousActivity activity = batch.get(i);
+            try {
+                jdbcTemplate.update(INSERT_SQL, statement -> bind(statement, activity));
+                insertedRows.increment();
+            } catch (DataAccessException e) {
+                if (isTransient(e)) {
+                    return scheduleRetry(batch.subList(i, batch.size()), e);
+                }
+                failedRows.increment();
+                log.error("Dropping suspicious activity of session {} rejected by the database", activity.getSessionId(), e);
+            }
+        }
+        retryAttempts = 0;
+        return true;
+    }
+
+    // Keeps the rows for the next flush after an exponential backoff; drops them after max-retries
+    private boolean scheduleRetry(List<SuspiciousActivity> rows, DataAccessException e) {
+        retryAttempts++;
+        if (retryAttempts > maxRetries) {
+            failedRows.add(rows.size());
+            retryAttempts = 0;
+            log.error("Dropping {} suspicious activities after {} failed attempts", rows.size(), maxRetries + 1, e);
+            return false;
+        }
+
+        long backoffMs = Math.min(maxBackoffMs, flushIntervalMs << Math.min(retryAttempts - 1, 20));
+        retryRows = new ArrayList<>(rows);
+        nextRetryNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMs);
+        log.warn("Writing {} suspicious activities failed (attempt {}), retrying in {} ms: {}",
+                rows.size(), retryAttempts, backoffMs, e.getMessage());
+        return false;
+    }
+
+    // Connection, lock and timeout failures; anything else is about the rows themselves
+    private static boolean isTransient(DataAccessException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException;
+    }
+
+    private void bind(PreparedStatement statement, SuspiciousActivity activity) throws SQLException {
+        statement.setString(1, activity.getSessionId());
+        statement.setString(2, activity.getExamId());
+        statement.setString(3, activity.getDescription());
+        statement.setTimestamp(4, Timestamp.valueOf(activity.getTimestamp()));
+        statement.setString(5, activity.getEvidencePath());
+        statement.setTimestamp(6, activity.getEndTimestamp() != null ? Timestamp.valueOf(activity.getEndTimestamp()) : null);
+        statement.setObject(7, activity.getFrameCount(), Types.INTEGER);
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public Map<String, Object> getStats() {
+        long batchCount = batches.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", pending.size());
+        stats.put("capacity", capacity);
+        stats.put("submitted", submitted.sum());
+        stats.put("insertedRows", insertedRows.sum());
+        stats.put("failedRows", failedRows.sum());
+        stats.put("retries", retries.sum());
+        stats.put("rowByRowFallbacks", rowByRowFallbacks.sum());
+        stats.put("batches", batchCount);
+        stats.put("avgBatchSize", batchCount == 0 ? 0 : insertedRows.sum() / batchCount);
+        stats.put("callerFlushes", callerFlushes.sum());
+        return stats;
+    }
+}
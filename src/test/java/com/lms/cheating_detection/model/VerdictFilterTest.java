@@ -0,0 +1,50 @@
+package com.lms.cheating_detection.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VerdictFilterTest {
+
+    @Test
+    void singleSpikeIsSuppressedAndSustainedDeviationRaises() {
+        VerdictFilter filter = new VerdictFilter(0.5, 5, 3, 1);
+
+        assertFalse(filter.push(true));
+        assertFalse(filter.push(false));
+        assertFalse(filter.push(false));
+
+        assertFalse(filter.push(true));
+        assertTrue(filter.push(true));
+    }
+
+    @Test
+    void raisedVerdictHoldsUntilCountFallsToRelease() {
+        VerdictFilter filter = new VerdictFilter(0.5, 5, 3, 1);
+        filter.push(true);
+        filter.push(true);
+        assertTrue(filter.push(true));
+
+        // Below `required` but above `release`: stays raised
+        assertTrue(filter.push(false));
+        assertTrue(filter.push(false));
+        assertTrue(filter.push(false));
+
+        // Only one hit left in the window
+        assertFalse(filter.push(false));
+    }
+
+    @Test
+    void poseIsAveragedExponentially() {
+        VerdictFilter filter = new VerdictFilter(0.5, 5, 3, 1);
+        filter.updatePose(40, 0, 0, 0);
+        filter.updatePose(0, 0, 0, 0);
+        assertEquals(20, filter.getYaw(), 1e-9);
+
+        filter.clearPose();
+        filter.updatePose(-10, 0, 0, 0);
+        assertEquals(-10, filter.getYaw(), 1e-9);
+    }
+}
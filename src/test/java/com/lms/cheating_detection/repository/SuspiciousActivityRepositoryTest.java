@@ -0,0 +1,76 @@
+package com.lms.cheating_detection.repository;
+
+import com.lms.cheating_detection.dto.SuspiciousActivityDTO;
+import com.lms.cheating_detection.model.SuspiciousActivity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Embedded H2 instead of the configured Postgres, with the matching dialect
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class SuspiciousActivityRepositoryTest {
+
+    private static final LocalDateTime FIRST_PAGE = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 3, 1, 9, 0);
+
+    @Autowired
+    private SuspiciousActivityRepository repository;
+
+    private Long save(String sessionId, String examId, LocalDateTime timestamp) {
+        SuspiciousActivity activity = new SuspiciousActivity();
+        activity.setSessionId(sessionId);
+        activity.setExamId(examId);
+        activity.setDescription("No face detected");
+        activity.setTimestamp(timestamp);
+        return repository.save(activity).getId();
+    }
+
+    @Test
+    void pagesSplitInsideEqualTimestampsWithoutSkippingOrRepeatingRows() {
+        // Three rows share T0, so page boundaries fall between rows ordered only by id
+        List<Long> expected = new ArrayList<>();
+        expected.add(save("s1", "exam", T0));
+        expected.add(save("s2", "exam", T0));
+        expected.add(save("s3", "exam", T0));
+        save("s1", "other-exam", T0);
+        expected.add(save("s1", "exam", T0.plusSeconds(1)));
+        expected.add(save("s2", "exam", T0.plusSeconds(1)));
+
+        List<Long> seen = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        LocalDateTime afterTimestamp = FIRST_PAGE;
+        long afterId = 0;
+        List<SuspiciousActivityDTO> page;
+        do {
+            page = repository.findPageByExamId("exam", afterTimestamp, afterId, PageRequest.of(0, 2));
+            pageSizes.add(page.size());
+            for (SuspiciousActivityDTO activity : page) {
+                seen.add(activity.getId());
+                afterTimestamp = activity.getTimestamp();
+                afterId = activity.getId();
+            }
+        } while (!page.isEmpty());
+
+        assertEquals(expected, seen);
+        assertEquals(List.of(2, 2, 1, 0), pageSizes);
+    }
+
+    @Test
+    void cursorOnEqualTimestampReturnsOnlyLaterIds() {
+        Long first = save("s1", "exam", T0);
+        Long second = save("s1", "exam", T0);
+        Long later = save("s1", "exam", T0.plusNanos(1_000));
+        save("s1", "exam", T0.minusSeconds(1));
+
+        List<SuspiciousActivityDTO> page = repository.findPageBySessionId("s1", T0, first, PageRequest.of(0, 10));
+
+        assertEquals(List.of(second, later), page.stream().map(SuspiciousActivityDTO::getId).toList());
+    }
+}
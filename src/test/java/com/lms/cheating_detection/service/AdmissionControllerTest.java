@@ -0,0 +1,103 @@
+package com.lms.cheating_detection.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControllerTest {
+
+    // Four analysis slots, one second per analysis: the node sustains four frames per second,
+    // one of them reserved for escalated sessions
+    private static AdmissionController controller() {
+        AdmissionController controller = new AdmissionController();
+        ReflectionTestUtils.setField(controller, "enabled", true);
+        ReflectionTestUtils.setField(controller, "configuredMaxInFlight", 4);
+        ReflectionTestUtils.setField(controller, "sloLatencyMs", 60_000L);
+        ReflectionTestUtils.setField(controller, "skipEyesAt", 0.7);
+        ReflectionTestUtils.setField(controller, "reduceAt", 0.85);
+        ReflectionTestUtils.setField(controller, "rejectAt", 1.0);
+        ReflectionTestUtils.setField(controller, "sessionIdleMs", 30_000L);
+        ReflectionTestUtils.setField(controller, "escalationShare", 0.25);
+        controller.init();
+        for (int i = 0; i < 50; i++) {
+            controller.recordAnalysis(1000);
+        }
+        return controller;
+    }
+
+    private static List<AdmissionController.Ticket> saturate(AdmissionController controller) {
+        List<AdmissionController.Ticket> tickets = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            tickets.add(controller.enter());
+        }
+        assertEquals("REJECT", controller.getStats().get("level"));
+        return tickets;
+    }
+
+    @Test
+    void atRejectLevelAdmissionIsBoundedByCapacity() {
+        AdmissionController controller = controller();
+        assertTrue(controller.tryAdmit("a", false));
+        assertTrue(controller.tryAdmit("b", false));
+        List<AdmissionController.Ticket> tickets = saturate(controller);
+
+        // "a" was just served: its share of the three shared frames/s is one frame per 2/3 s
+        assertFalse(controller.tryAdmit("a", false));
+
+        // Sessions that have not been served yet share the burst of three frames, not more
+        assertTrue(controller.tryAdmit("c", false));
+        assertTrue(controller.tryAdmit("d", false));
+        assertTrue(controller.tryAdmit("e", false));
+        assertFalse(controller.tryAdmit("f", false));
+        // Six sessions on three frames/s: retry in 2 s
+        assertEquals(2, controller.retryAfterSeconds());
+        assertEquals(2L, controller.getStats().get("rejected"));
+
+        tickets.forEach(AdmissionController.Ticket::close);
+        assertTrue(controller.tryAdmit("a", false));
+    }
+
+    @Test
+    void escalatedSessionsUseABoundedReserve() {
+        AdmissionController controller = controller();
+        assertTrue(controller.tryAdmit("a", false));
+        assertTrue(controller.tryAdmit("b", false));
+        saturate(controller);
+
+        // The reserve holds one frame: the first escalated follow-up passes despite "a" being just served
+        assertTrue(controller.tryAdmit("a", true));
+        // With the reserve used up an escalated session only gets its fair share
+        assertFalse(controller.tryAdmit("b", true));
+        assertTrue(controller.tryAdmit("c", true));
+
+        // A storm of escalations cannot take more than the shared burst on top of the reserve
+        int admitted = 0;
+        for (int i = 0; i < 20; i++) {
+            if (controller.tryAdmit("storm-" + i, true)) {
+                admitted++;
+            }
+        }
+        assertEquals(2, admitted);
+
+        Map<String, Object> stats = controller.getStats();
+        assertEquals(1L, stats.get("escalationsAdmitted"));
+        assertEquals(19L, stats.get("rejected"));
+    }
+
+    @Test
+    void forgottenSessionsNoLongerCountAsActive() {
+        AdmissionController controller = controller();
+        controller.tryAdmit("a", false);
+        controller.tryAdmit("b", false);
+        controller.forget("a");
+
+        assertEquals(1, controller.getStats().get("activeSessions"));
+    }
+}
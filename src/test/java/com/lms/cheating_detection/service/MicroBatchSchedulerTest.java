@@ -0,0 +1,110 @@
+package com.lms.cheating_detection.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MicroBatchSchedulerTest {
+
+    @Test
+    void fullBatchIsDispatchedWithoutWaitingAndResultsGoBackToEachCaller() throws Exception {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        try (MicroBatchScheduler<Integer, Integer> scheduler = new MicroBatchScheduler<>("test", 4, 10_000, 1,
+                inputs -> {
+                    batchSizes.add(inputs.size());
+                    return inputs.stream().map(i -> i * 10).collect(Collectors.toList());
+                })) {
+
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(scheduler.submit(i));
+            }
+
+            for (int i = 0; i < 4; i++) {
+                assertEquals(i * 10, futures.get(i).get(1, TimeUnit.SECONDS));
+            }
+            assertEquals(List.of(4), batchSizes);
+        }
+    }
+
+    @Test
+    void partialBatchIsDispatchedAfterMaxWait() throws Exception {
+        try (MicroBatchScheduler<Integer, Integer> scheduler = new MicroBatchScheduler<>("test", 8, 20, 1,
+                inputs -> inputs)) {
+
+            long start = System.nanoTime();
+            assertEquals(7, scheduler.submit(7).get(1, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(15));
+            assertEquals(1.0 / 8, scheduler.getBatchFillRatio());
+        }
+    }
+
+    @Test
+    void itemsPendingAtCloseFailInsteadOfHanging() throws Exception {
+        // The batch is still filling up (max wait 10 s) when the scheduler closes
+        MicroBatchScheduler<Integer, Integer> scheduler = new MicroBatchScheduler<>("test", 8, 10_000, 1, inputs -> inputs);
+        List<CompletableFuture<Integer>> pending = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            pending.add(scheduler.submit(i));
+        }
+
+        scheduler.close();
+
+        pending.add(scheduler.submit(9));
+        for (CompletableFuture<Integer> future : pending) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+    }
+
+    @Test
+    void callWithdrawsAnInputWhoseBatchDidNotStartInTime() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        List<Integer> seen = new CopyOnWriteArrayList<>();
+        try (MicroBatchScheduler<Integer, Integer> scheduler = new MicroBatchScheduler<>("test", 1, 0, 1, inputs -> {
+            seen.addAll(inputs);
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return inputs;
+        })) {
+            CompletableFuture<Integer> first = scheduler.submit(1);
+
+            assertThrows(TimeoutException.class, () -> scheduler.call(2, 50));
+            blocked.countDown();
+
+            assertEquals(1, first.get(1, TimeUnit.SECONDS));
+            assertEquals(3, scheduler.call(3, 1000));
+            assertEquals(List.of(1, 3), seen);
+            assertEquals(1L, scheduler.getStats().get("withdrawnAfterTimeout"));
+        }
+    }
+
+    @Test
+    void errorInBatchFunctionFailsEveryCaller() throws Exception {
+        try (MicroBatchScheduler<Integer, Integer> scheduler = new MicroBatchScheduler<>("test", 2, 10_000, 1, inputs -> {
+            throw new AssertionError("boom");
+        })) {
+            CompletableFuture<Integer> a = scheduler.submit(1);
+            CompletableFuture<Integer> b = scheduler.submit(2);
+
+            assertInstanceOf(AssertionError.class, assertThrows(ExecutionException.class, () -> a.get(1, TimeUnit.SECONDS)).getCause());
+            assertInstanceOf(AssertionError.class, assertThrows(ExecutionException.class, () -> b.get(1, TimeUnit.SECONDS)).getCause());
+        }
+    }
+}
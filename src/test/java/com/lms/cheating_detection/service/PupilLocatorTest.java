@@ -0,0 +1,59 @@
+package com.lms.cheating_detection.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PupilLocatorTest {
+
+    private static final int WIDTH = 40;
+    private static final int HEIGHT = 30;
+
+    // Uniform background with a dark disc; the top rows hold an even darker eyebrow band
+    private static byte[] eye(int background, int pupil, int centerX, int centerY) {
+        byte[] pixels = new byte[WIDTH * HEIGHT];
+        Arrays.fill(pixels, (byte) background);
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                int dx = col - centerX;
+                int dy = row - centerY;
+                if (row < 4) {
+                    pixels[row * WIDTH + col] = (byte) Math.max(0, pupil - 10);
+                } else if (dx * dx + dy * dy <= 16) {
+                    pixels[row * WIDTH + col] = (byte) pupil;
+                }
+            }
+        }
+        return pixels;
+    }
+
+    @Test
+    void findsDarkDiscAndIgnoresEyebrowBand() {
+        PupilLocator locator = new PupilLocator();
+        locator.locate(eye(180, 30, 28, 17), WIDTH, HEIGHT, 0.05);
+
+        assertEquals(28, locator.getX(), 0.5);
+        assertEquals(17, locator.getY(), 0.5);
+    }
+
+    @Test
+    void thresholdFollowsBrightness() {
+        // Pupil at gray 110: above the old fixed threshold of 70, still found
+        PupilLocator locator = new PupilLocator();
+        locator.locate(eye(230, 110, 12, 20), WIDTH, HEIGHT, 0.05);
+
+        assertEquals(12, locator.getX(), 0.5);
+        assertEquals(20, locator.getY(), 0.5);
+    }
+
+    @Test
+    void emptyRegionFallsBackToCenter() {
+        PupilLocator locator = new PupilLocator();
+        locator.locate(new byte[0], 0, 0, 0.1);
+
+        assertEquals(0, locator.getX());
+        assertEquals(0, locator.getY());
+    }
+}
@@ -0,0 +1,154 @@
+package com.lms.cheating_detection.service;
+
+import com.lms.cheating_detection.model.SuspiciousActivity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SuspiciousActivityWriterTest {
+
+    // Batch and single-row inserts fail as scripted; successful rows are recorded by session id
+    private static final class ScriptedJdbcTemplate extends JdbcTemplate {
+        final Deque<DataAccessException> batchFailures = new ArrayDeque<>();
+        DataAccessException alwaysFail;
+        String rejectedSession;
+        final List<String> written = new CopyOnWriteArrayList<>();
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> setter) {
+            if (alwaysFail != null) {
+                throw alwaysFail;
+            }
+            DataAccessException failure = batchFailures.poll();
+            if (failure != null) {
+                throw failure;
+            }
+            batchArgs.forEach(activity -> written.add(((SuspiciousActivity) activity).getSessionId()));
+            return new int[0][];
+        }
+
+        @Override
+        public int update(String sql, PreparedStatementSetter setter) {
+            String[] sessionId = new String[1];
+            PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("setString") && (int) args[0] == 1) {
+                            sessionId[0] = (String) args[1];
+                        }
+                        return null;
+                    });
+            try {
+                setter.setValues(statement);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            if (sessionId[0].equals(rejectedSession)) {
+                throw new DataIntegrityViolationException("rejected row");
+            }
+            written.add(sessionId[0]);
+            return 1;
+        }
+    }
+
+    private static SuspiciousActivityWriter writer(JdbcTemplate jdbcTemplate, int maxRetries) {
+        SuspiciousActivityWriter writer = new SuspiciousActivityWriter(jdbcTemplate, new DetectionMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(writer, "batchSize", 10);
+        // No background flush during the test; retries back off for 1 ms only
+        ReflectionTestUtils.setField(writer, "flushIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(writer, "capacity", 100);
+        ReflectionTestUtils.setField(writer, "maxRetries", maxRetries);
+        ReflectionTestUtils.setField(writer, "maxBackoffMs", 1L);
+        writer.init();
+        return writer;
+    }
+
+    private static SuspiciousActivity activity(String sessionId) {
+        SuspiciousActivity activity = new SuspiciousActivity();
+        activity.setSessionId(sessionId);
+        activity.setExamId("exam");
+        activity.setDescription("No face detected");
+        activity.setTimestamp(LocalDateTime.now());
+        return activity;
+    }
+
+    @Test
+    void transientFailureKeepsTheBatchForARetry() throws Exception {
+        ScriptedJdbcTemplate jdbcTemplate = new ScriptedJdbcTemplate();
+        jdbcTemplate.batchFailures.add(new QueryTimeoutException("timeout"));
+        SuspiciousActivityWriter writer = writer(jdbcTemplate, 3);
+        writer.submit(activity("a"));
+        writer.submit(activity("b"));
+
+        writer.flush();
+        assertEquals(List.of(), jdbcTemplate.written);
+
+        Thread.sleep(5);
+        writer.submit(activity("c"));
+        writer.flush();
+
+        assertEquals(List.of("a", "b", "c"), jdbcTemplate.written);
+        Map<String, Object> stats = writer.getStats();
+        assertEquals(1L, stats.get("retries"));
+        assertEquals(0L, stats.get("failedRows"));
+        writer.shutdown();
+    }
+
+    @Test
+    void rejectedBatchIsWrittenRowByRowSoOnlyTheBadRowIsLost() throws Exception {
+        ScriptedJdbcTemplate jdbcTemplate = new ScriptedJdbcTemplate();
+        jdbcTemplate.batchFailures.add(new DataIntegrityViolationException("batch rejected"));
+        jdbcTemplate.rejectedSession = "bad";
+        SuspiciousActivityWriter writer = writer(jdbcTemplate, 3);
+        writer.submit(activity("a"));
+        writer.submit(activity("bad"));
+        writer.submit(activity("c"));
+
+        writer.flush();
+
+        assertEquals(List.of("a", "c"), jdbcTemplate.written);
+        Map<String, Object> stats = writer.getStats();
+        assertEquals(2L, stats.get("insertedRows"));
+        assertEquals(1L, stats.get("failedRows"));
+        writer.shutdown();
+    }
+
+    @Test
+    void retriesAreBounded() throws Exception {
+        ScriptedJdbcTemplate jdbcTemplate = new ScriptedJdbcTemplate();
+        jdbcTemplate.alwaysFail = new QueryTimeoutException("database down");
+        SuspiciousActivityWriter writer = writer(jdbcTemplate, 2);
+        writer.submit(activity("a"));
+        writer.submit(activity("b"));
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            writer.flush();
+            Thread.sleep(5);
+        }
+
+        Map<String, Object> stats = writer.getStats();
+        assertEquals(2L, stats.get("retries"));
+        assertEquals(2L, stats.get("failedRows"));
+        assertEquals(0, writer.getPendingCount());
+        writer.shutdown();
+    }
+}